@@ -0,0 +1,106 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compares the twin-array MinMaxHeap with the single-array CompactMinMaxHeap and the primitive DoubleMinMaxHeap on
+// the same rider ratings: insert everything, then remove from both ends until the heap is empty.
+// wideTwinArrays runs the twin-array heap with 2, 4 and 8 children per node, cachedKeys orders it by a cached
+// primitive copy of the rating instead of calling compareTo.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeapLayoutBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private GottRider[] riders;
+
+    @Setup(Level.Trial)
+    public void makeRiders() {
+        Random random = new Random(1234L);
+        this.riders = new GottRider[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.riders[i] = new GottRider("Rider " + i, 1L + random.nextInt(100), random.nextDouble() * 5);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Arity { // only wideTwinArrays reads it, so the other layouts run once per size
+        @Param({"2", "4", "8"})
+        public int arity;
+    }
+
+    @Benchmark
+    public void twinArrays(Blackhole blackhole) {
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>();
+        for (GottRider rider : this.riders) {
+            heap.insert(rider);
+        }
+        while (heap.getSize() > 0) {
+            blackhole.consume(heap.deleteMin());
+            if (heap.getSize() > 0) {
+                blackhole.consume(heap.deleteMax());
+            }
+        }
+    }
+    @Benchmark
+    public void wideTwinArrays(Arity arity, Blackhole blackhole) {
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>(50, arity.arity);
+        for (GottRider rider : this.riders) {
+            heap.insert(rider);
+        }
+        while (heap.getSize() > 0) {
+            blackhole.consume(heap.deleteMin());
+            if (heap.getSize() > 0) {
+                blackhole.consume(heap.deleteMax());
+            }
+        }
+    }
+    @Benchmark
+    public void cachedKeys(Blackhole blackhole) {
+        MinMaxHeap<GottRider> heap = MinMaxHeap.comparingDouble(GottRider::getAverageReviewGiven);
+        for (GottRider rider : this.riders) {
+            heap.insert(rider);
+        }
+        while (heap.getSize() > 0) {
+            blackhole.consume(heap.deleteMin());
+            if (heap.getSize() > 0) {
+                blackhole.consume(heap.deleteMax());
+            }
+        }
+    }
+    @Benchmark
+    public void singleArray(Blackhole blackhole) {
+        CompactMinMaxHeap<GottRider> heap = new CompactMinMaxHeap<>();
+        for (GottRider rider : this.riders) {
+            heap.insert(rider);
+        }
+        while (heap.getSize() > 0) {
+            blackhole.consume(heap.deleteMin());
+            if (heap.getSize() > 0) {
+                blackhole.consume(heap.deleteMax());
+            }
+        }
+    }
+    @Benchmark
+    public void primitiveKeys(Blackhole blackhole) {
+        DoubleMinMaxHeap heap = new DoubleMinMaxHeap();
+        for (int id = 0; id < this.riders.length; id++) {
+            heap.insertWithId(this.riders[id].getAverageReviewGiven(), id);
+        }
+        while (heap.getSize() > 0) {
+            blackhole.consume(this.riders[heap.findMinId()]);
+            heap.deleteMin();
+            if (heap.getSize() > 0) {
+                blackhole.consume(this.riders[heap.findMaxId()]);
+                heap.deleteMax();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the MinMaxHeap hot paths: building a heap one insert at a time (with resize()), the O(n) array
+// constructor, draining with deleteMin/deleteMax and a steady state mix of inserts and deletes.
+// Every benchmark runs over heap sizes, Integer and GottRider elements and sorted/reverse/random input orders.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class MinMaxHeapBenchmark {
+
+    public enum ElementType { INTEGER, RIDER }
+    public enum InputOrder { RANDOM, SORTED, REVERSE }
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"INTEGER", "RIDER"})
+    public ElementType elementType;
+
+    @Param({"RANDOM", "SORTED", "REVERSE"})
+    public InputOrder order;
+
+    private Comparable[] elements;
+    private MinMaxHeap steadyHeap; // the heap the mixed benchmark keeps working on during an iteration
+    private int next;
+
+    @Setup(Level.Trial)
+    public void makeElements() {
+        Random random = new Random(1234L);
+        this.elements = new Comparable[this.size];
+        long[] keys = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            keys[i] = random.nextInt(this.size);
+        }
+        if (this.order != InputOrder.RANDOM) {
+            Arrays.sort(keys);
+        }
+        for (int i = 0; i < this.size; i++) {
+            long key = this.order == InputOrder.REVERSE ? keys[this.size - 1 - i] : keys[i];
+            this.elements[i] = this.elementType == ElementType.INTEGER
+                    ? Integer.valueOf((int) key)
+                    : new GottRider("Rider " + i, 1L + key % 100, (double) key / this.size * 5);
+        }
+    }
+    @Setup(Level.Iteration)
+    public void makeSteadyHeap() {
+        this.steadyHeap = new MinMaxHeap(this.elements);
+        this.next = 0;
+    }
+
+    @State(Scope.Thread)
+    public static class FullHeap { // a full heap, rebuilt before every invocation of the draining benchmarks
+        MinMaxHeap heap;
+
+        @Setup(Level.Invocation)
+        public void fill(MinMaxHeapBenchmark benchmark) {
+            this.heap = new MinMaxHeap(benchmark.elements);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Mix { // the operations of mixedInsertDelete, the other benchmarks do not run once per mix
+        @Param({"50", "90"})
+        public int insertPercent; // the share of inserts in the first half of the cycle, the second half mirrors it
+
+        boolean[] operations; // true for insert, precomputed so the benchmark does not measure Random
+
+        @Setup(Level.Trial)
+        public void makeOperations() {
+            // A heap only keeps its size if it gets as many deletes as inserts, so the second half of the cycle
+            // swaps inserts and deletes of the first half. The heap swings around its starting size instead of
+            // growing for the whole measurement.
+            Random random = new Random(1234L);
+            this.operations = new boolean[1 << 16];
+            int half = this.operations.length / 2;
+            for (int i = 0; i < half; i++) {
+                this.operations[i] = random.nextInt(100) < this.insertPercent;
+                this.operations[half + i] = !this.operations[i];
+            }
+        }
+    }
+
+    @Benchmark
+    public MinMaxHeap insertOneByOne() { // starts at the default capacity, so it includes every resize()
+        MinMaxHeap built = new MinMaxHeap();
+        for (Comparable element : this.elements) {
+            built.insert(element);
+        }
+        return built;
+    }
+    @Benchmark
+    public MinMaxHeap arrayConstructor() {
+        return new MinMaxHeap(this.elements);
+    }
+    @Benchmark
+    public void drainDeleteMin(FullHeap full, Blackhole blackhole) {
+        while (full.heap.getSize() > 0) {
+            blackhole.consume(full.heap.deleteMin());
+        }
+    }
+    @Benchmark
+    public void drainDeleteMax(FullHeap full, Blackhole blackhole) {
+        while (full.heap.getSize() > 0) {
+            blackhole.consume(full.heap.deleteMax());
+        }
+    }
+    @Benchmark
+    public void topQuarterOneByOne(FullHeap full, Blackhole blackhole) { // the baseline for topQuarterBulk
+        for (int i = 0; i < this.size / 4; i++) {
+            blackhole.consume(full.heap.deleteMax());
+        }
+    }
+    @Benchmark
+    public void topQuarterBulk(FullHeap full, Blackhole blackhole) {
+        blackhole.consume(full.heap.deleteMaximums(this.size / 4));
+    }
+    @Benchmark
+    public Object churnInsertThenDelete() { // sliding top-K: every new element evicts the current minimum, the baseline for churnFused
+        Comparable element = this.elements[this.next++ % this.size];
+        this.steadyHeap.insert(element);
+        return this.steadyHeap.deleteMin();
+    }
+    @Benchmark
+    public Object churnFused() {
+        return this.steadyHeap.insertThenDeleteMin(this.elements[this.next++ % this.size]);
+    }
+    @Benchmark
+    public Object mixedInsertDelete(Mix mix) { // one operation per call, deletes alternate between the two ends
+        int i = this.next++ & (mix.operations.length - 1);
+        if (mix.operations[i] || this.steadyHeap.getSize() == 0) {
+            this.steadyHeap.insert(this.elements[i % this.size]);
+            return null;
+        }
+        return (i & 1) == 0 ? this.steadyHeap.deleteMin() : this.steadyHeap.deleteMax();
+    }
+}
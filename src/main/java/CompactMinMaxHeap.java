@@ -0,0 +1,229 @@
+import java.util.NoSuchElementException;
+
+// A min-max heap that keeps every element once, in a single array.
+// Even levels (the root is level 0) are min levels and odd levels are max levels, so the minimum is always
+// the root and the maximum is one of the root's children. Same public API as MinMaxHeap, half the memory,
+// and every percolation walks one tree instead of two.
+public class CompactMinMaxHeap <T extends Comparable <T>>{
+    private static final int DEFAULT_CAPACITY = 50;
+    private T[] heap;
+    private int capacity; // the length of the backing array (slot 0 is unused, 1 based indexing)
+    private int size; // the actual size of the heap
+
+    // ###### CONSTRUCTORS ######
+
+    public CompactMinMaxHeap() { // O(1), default constructor , constructing a heap with 50 capacity
+        this.capacity = DEFAULT_CAPACITY;
+        this.heap = (T[]) new Comparable[capacity];
+        this.size = 0;
+    }
+    public CompactMinMaxHeap(int initialCapacity){ // O(1), constructing a heap of size initialCapacity
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be at least 1");
+        }
+        this.capacity = initialCapacity + 1; // +1 because im using 1 based indexing
+        this.heap = (T[]) new Comparable[capacity];
+        this.size = 0;
+    }
+    public CompactMinMaxHeap(T[] initialData){ // O(n), constructing a heap from InitialData array
+        this.size = initialData.length;
+        this.capacity = this.size + 1; // +1 because im using 1 based indexing
+        this.heap = (T[]) new Comparable[this.capacity];
+        System.arraycopy(initialData, 0, this.heap, 1, this.size);
+        // Build the heap bottom up, every internal node is pushed down according to the level it sits on.
+        for (int i = this.size / 2; i >= 1; i--) {
+            percolateDown(i);
+        }
+    }
+
+    // ###### METHODS ######
+
+    public void insert (T element){ // O(n) if the heap is full, otherwise O(log(n))
+        if (element == null) { // given element is null
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+        if (this.size >= this.capacity - 1) { // check if the heap is full
+            resize();
+        }
+        this.size++;
+        this.heap[this.size] = element;
+        percolateUp(this.size);
+    }
+    public T deleteMin(){ // O(log(n)), the minimum is always the root
+        if (isEmpty()) {
+            throw new NoSuchElementException("No element to be removed as the heap is empty.");
+        }
+        return removeAt(1);
+    }
+    public T deleteMax(){ // O(log(n)), the maximum is the root's larger child (or the root itself if it is alone)
+        if (isEmpty()){
+            throw new NoSuchElementException("No element to be deleted as the Heap is empty.");
+        }
+        return removeAt(maxIndex());
+    }
+    public T findMin(){ // O(1) returns the minimum element in the heap otherwise, throws an exception.
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.heap[1];
+    }
+    public T findMax(){ // O(1) returns the maximum element in the heap otherwise, throws an exception.
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.heap[maxIndex()];
+    }
+    public int getSize () { // O(1), returns the size of the heap
+        return this.size;
+    }
+    private T removeAt(int i){ // O(log(n)), moves the last element into slot i and pushes it down
+        T removed = this.heap[i];
+        this.heap[i] = this.heap[this.size];
+        this.heap[this.size] = null; // dont keep a reference to the removed element
+        this.size--;
+        if (i <= this.size) {
+            percolateDown(i);
+        }
+        return removed;
+    }
+    private void percolateUp (int i){
+        int p = parent(i);
+        if (p == 0) { // i is the root
+            return;
+        }
+        if (isMinLevel(i)) {
+            if (this.heap[i].compareTo(this.heap[p]) > 0) { // bigger than its max level parent, so it belongs to the max levels
+                swap(i, p);
+                percolateUpMax(p);
+            } else {
+                percolateUpMin(i);
+            }
+        } else {
+            if (this.heap[i].compareTo(this.heap[p]) < 0) { // smaller than its min level parent, so it belongs to the min levels
+                swap(i, p);
+                percolateUpMin(p);
+            } else {
+                percolateUpMax(i);
+            }
+        }
+    }
+    private void percolateUpMin (int i){ // walks up the min levels only, i>3 is to ensure that i has a grandparent
+        while (i > 3 && this.heap[i].compareTo(this.heap[grandparent(i)]) < 0) {
+            swap(i, grandparent(i));
+            i = grandparent(i);
+        }
+    }
+    private void percolateUpMax (int i){ // walks up the max levels only, i>3 is to ensure that i has a grandparent
+        while (i > 3 && this.heap[i].compareTo(this.heap[grandparent(i)]) > 0) {
+            swap(i, grandparent(i));
+            i = grandparent(i);
+        }
+    }
+    private void percolateDown (int i){
+        if (isMinLevel(i)) {
+            percolateDownMin(i);
+        } else {
+            percolateDownMax(i);
+        }
+    }
+    private void percolateDownMin (int i){
+        int m;
+        while (leftChild(i) <= this.size) { // i has at least one child
+            m = extremeDescendant(i, -1); // the smallest child or grandchild
+            if (m > rightChild(i)) { // m is a grandchild
+                if (this.heap[m].compareTo(this.heap[i]) < 0) {
+                    swap(m, i);
+                    if (this.heap[m].compareTo(this.heap[parent(m)]) > 0) { // keep the max level parent the biggest
+                        swap(m, parent(m));
+                    }
+                    i = m;
+                } else {
+                    break;
+                }
+            } else { // m is a child, which has no children of its own on the min levels below it
+                if (this.heap[m].compareTo(this.heap[i]) < 0) {
+                    swap(m, i);
+                }
+                break;
+            }
+        }
+    }
+    private void percolateDownMax (int i){
+        int m;
+        while (leftChild(i) <= this.size) { // i has at least one child
+            m = extremeDescendant(i, 1); // the biggest child or grandchild
+            if (m > rightChild(i)) { // m is a grandchild
+                if (this.heap[m].compareTo(this.heap[i]) > 0) {
+                    swap(m, i);
+                    if (this.heap[m].compareTo(this.heap[parent(m)]) < 0) { // keep the min level parent the smallest
+                        swap(m, parent(m));
+                    }
+                    i = m;
+                } else {
+                    break;
+                }
+            } else { // m is a child
+                if (this.heap[m].compareTo(this.heap[i]) > 0) {
+                    swap(m, i);
+                }
+                break;
+            }
+        }
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    // These functions are used to make the code more readable and to avoid code duplication.
+    private int extremeDescendant (int i, int sign){ // O(1), index of the smallest (sign -1) or biggest (sign 1) among the children and grandchildren of i
+        int best = leftChild(i);
+        int right = rightChild(i);
+        if (right <= this.size && sign * this.heap[right].compareTo(this.heap[best]) > 0) {
+            best = right;
+        }
+        int firstGrandchild = leftChild(leftChild(i));
+        int lastGrandchild = Math.min(firstGrandchild + 3, this.size);
+        for (int g = firstGrandchild; g <= lastGrandchild; g++) {
+            if (sign * this.heap[g].compareTo(this.heap[best]) > 0) {
+                best = g;
+            }
+        }
+        return best;
+    }
+    private int maxIndex (){ // O(1), the maximum sits on the first max level unless the heap has a single element
+        if (this.size == 1) {
+            return 1;
+        }
+        if (this.size == 2 || this.heap[2].compareTo(this.heap[3]) >= 0) {
+            return 2;
+        }
+        return 3;
+    }
+    private void resize() { //O(n), helper function for the insert.
+        this.capacity *= 2;
+        T[] newHeap = (T[]) new Comparable[this.capacity];
+        System.arraycopy(this.heap, 1, newHeap, 1, this.size);
+        this.heap = newHeap;
+    }
+    private boolean isMinLevel (int i){ // O(1), levels alternate min/max starting with a min level at the root
+        return ((31 - Integer.numberOfLeadingZeros(i)) & 1) == 0;
+    }
+    private int parent(int i){ // O(1), helper function for better readability
+        return (i / 2);
+    }
+    private int grandparent(int i){ // O(1), helper function for better readability
+        return (i / 4);
+    }
+    private int leftChild (int i){ //O(1), helper function for better readability
+        return (2 * i);
+    }
+    private int rightChild (int i){ //O(1), helper function for better readability
+        return (2 * i + 1);
+    }
+    private void swap (int i, int j){ //O(1) helper function for the percolate functions.
+        T tempElement = this.heap[i];
+        this.heap[i] = this.heap[j];
+        this.heap[j] = tempElement;
+    }
+    private boolean isEmpty() { // O(1), helper function to check if the heap is empty
+        return this.size == 0;
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A thread safe double ended priority queue made of several MinMaxHeap stripes, each with its own lock.
+// Threads insert into whichever stripe they can lock first, so inserts and deletes on different stripes run in
+// parallel instead of waiting on one global lock.
+//
+// Exactness guarantee (MultiQueue style):
+// - deleteMin/deleteMax are relaxed: they look at two random stripes and remove the better of their two
+//   extremes. The result is the exact extreme of its stripe, but only close to the global one, on average
+//   within O(number of stripes) ranks of it. Nothing is ever lost or returned twice.
+// - deleteMinExact/deleteMaxExact lock every stripe and remove the true global extreme (linearizable).
+// - findMin/findMax read the extremes every stripe published after its last change, without locking.
+//   They are exact when no writer runs concurrently.
+public class ConcurrentMinMaxHeap <T extends Comparable <T>>{
+    private static final int STRIPES_PER_CORE = 2;
+    private static final int MAX_ATTEMPTS = 8; // relaxed tries before falling back to the exact (all locks) path
+    private final Stripe<T>[] stripes;
+    private final AtomicInteger size = new AtomicInteger(); // the actual size of the heap, over all stripes
+
+    private static final class Stripe <T extends Comparable <T>>{
+        private final ReentrantLock lock = new ReentrantLock();
+        private final MinMaxHeap<T> heap = new MinMaxHeap<>();
+        private volatile HeapExtremes<T> extremes; // the stripe's extremes as of its last change, null if empty
+
+        private void publish() { // O(1), called with the lock held after every change
+            this.extremes = HeapExtremes.of(this.heap);
+        }
+        private T published(boolean min) { // O(1), lock free
+            HeapExtremes<T> current = this.extremes;
+            if (current == null) {
+                return null;
+            }
+            return min ? current.min : current.max;
+        }
+    }
+
+    // ###### CONSTRUCTORS ######
+
+    public ConcurrentMinMaxHeap() { // O(1), two stripes per available core
+        this(STRIPES_PER_CORE * Runtime.getRuntime().availableProcessors());
+    }
+    public ConcurrentMinMaxHeap(int stripeCount) { // O(stripeCount)
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be at least 1");
+        }
+        this.stripes = (Stripe<T>[]) new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+    }
+
+    // ###### METHODS ######
+
+    public void insert (T element){ // O(log(n)), into the first free stripe starting from a random one
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+        int start = ThreadLocalRandom.current().nextInt(this.stripes.length);
+        for (int attempt = 0; attempt < this.stripes.length; attempt++) {
+            Stripe<T> stripe = this.stripes[(start + attempt) % this.stripes.length];
+            if (stripe.lock.tryLock()) {
+                insertLocked(stripe, element);
+                return;
+            }
+        }
+        Stripe<T> stripe = this.stripes[start]; // every stripe is busy, wait for one
+        stripe.lock.lock();
+        insertLocked(stripe, element);
+    }
+    public T deleteMin (){ // O(log(n)), relaxed, see the guarantee above
+        return deleteRelaxed(true);
+    }
+    public T deleteMax (){ // O(log(n)), relaxed, see the guarantee above
+        return deleteRelaxed(false);
+    }
+    public T deleteMinExact (){ // O(stripes + log(n)), the global minimum, locks every stripe
+        return deleteExact(true);
+    }
+    public T deleteMaxExact (){ // O(stripes + log(n)), the global maximum, locks every stripe
+        return deleteExact(false);
+    }
+    public T findMin (){ // O(stripes), lock free
+        return findPublished(true);
+    }
+    public T findMax (){ // O(stripes), lock free
+        return findPublished(false);
+    }
+    public int getSize (){ // O(1)
+        return this.size.get();
+    }
+    private void insertLocked (Stripe<T> stripe, T element){ // the caller holds stripe.lock, which is released here
+        try {
+            stripe.heap.insert(element);
+            stripe.publish();
+            this.size.incrementAndGet();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    private T deleteRelaxed (boolean min){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (this.size.get() == 0) {
+                throw new NoSuchElementException("No element to be removed as the heap is empty.");
+            }
+            Stripe<T> first = this.stripes[random.nextInt(this.stripes.length)];
+            Stripe<T> second = this.stripes[random.nextInt(this.stripes.length)];
+            Stripe<T> chosen = better(first, second, min);
+            if (chosen == null || !chosen.lock.tryLock()) { // both empty, or someone else is working on it
+                continue;
+            }
+            try {
+                if (chosen.heap.getSize() > 0) { // could have been emptied since it published
+                    return deleteLocked(chosen, min);
+                }
+            } finally {
+                chosen.lock.unlock();
+            }
+        }
+        return deleteExact(min); // the heap is nearly empty or very contended
+    }
+    private T deleteExact (boolean min){
+        for (Stripe<T> stripe : this.stripes) { // always lock in the same order to avoid deadlocks
+            stripe.lock.lock();
+        }
+        try {
+            Stripe<T> chosen = null;
+            for (Stripe<T> stripe : this.stripes) {
+                if (stripe.heap.getSize() > 0 && (chosen == null || isBetter(extreme(stripe.heap, min), extreme(chosen.heap, min), min))) {
+                    chosen = stripe;
+                }
+            }
+            if (chosen == null) {
+                throw new NoSuchElementException("No element to be removed as the heap is empty.");
+            }
+            return deleteLocked(chosen, min);
+        } finally {
+            for (Stripe<T> stripe : this.stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+    private T deleteLocked (Stripe<T> stripe, boolean min){ // the caller holds stripe.lock and the stripe is not empty
+        T element = min ? stripe.heap.deleteMin() : stripe.heap.deleteMax();
+        stripe.publish();
+        this.size.decrementAndGet();
+        return element;
+    }
+    private T findPublished (boolean min){
+        T best = null;
+        for (Stripe<T> stripe : this.stripes) {
+            T candidate = stripe.published(min);
+            if (candidate != null && (best == null || isBetter(candidate, best, min))) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return best;
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private Stripe<T> better (Stripe<T> first, Stripe<T> second, boolean min){ // O(1), the stripe with the better published extreme, null if both are empty
+        T a = first.published(min);
+        T b = second.published(min);
+        if (a == null) {
+            return b == null ? null : second;
+        }
+        if (b == null) {
+            return first;
+        }
+        return isBetter(b, a, min) ? second : first;
+    }
+    private T extreme (MinMaxHeap<T> heap, boolean min){ // O(1)
+        return min ? heap.findMin() : heap.findMax();
+    }
+    private boolean isBetter (T a, T b, boolean min){ // O(1), a is smaller (min) or bigger (max) than b
+        int comparison = a.compareTo(b);
+        return min ? comparison < 0 : comparison > 0;
+    }
+}
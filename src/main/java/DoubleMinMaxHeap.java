@@ -0,0 +1,287 @@
+import java.util.NoSuchElementException;
+
+// A min-max heap of primitive double keys, using the same single-array min-level/max-level layout as
+// CompactMinMaxHeap. Keys are compared with < and > directly, so there is no boxing and no compareTo call.
+// NaN has no place in that order and is rejected on insertion.
+// Every key can optionally carry an int id (for example an index into an array of riders), kept in a
+// parallel array that is only allocated once the first id is inserted.
+public class DoubleMinMaxHeap {
+    private static final int DEFAULT_CAPACITY = 50;
+    private double[] keys;
+    private int[] ids; // null until the first insert with an id
+    private int capacity; // the length of the backing arrays (slot 0 is unused, 1 based indexing)
+    private int size; // the actual size of the heap
+
+    // ###### CONSTRUCTORS ######
+
+    public DoubleMinMaxHeap() { // O(1), default constructor , constructing a heap with 50 capacity
+        this.capacity = DEFAULT_CAPACITY;
+        this.keys = new double[capacity];
+        this.size = 0;
+    }
+    public DoubleMinMaxHeap(int initialCapacity){ // O(1), constructing a heap of size initialCapacity
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be at least 1");
+        }
+        this.capacity = initialCapacity + 1; // +1 because im using 1 based indexing
+        this.keys = new double[capacity];
+        this.size = 0;
+    }
+    public DoubleMinMaxHeap(double[] initialKeys){ // O(n), constructing a heap from initialKeys array
+        this.size = initialKeys.length;
+        this.capacity = this.size + 1; // +1 because im using 1 based indexing
+        this.keys = new double[this.capacity];
+        System.arraycopy(initialKeys, 0, this.keys, 1, this.size);
+        for (int i = 1; i <= this.size; i++) {
+            checkKey(this.keys[i]);
+        }
+        for (int i = this.size / 2; i >= 1; i--) {
+            percolateDown(i);
+        }
+    }
+
+    // ###### METHODS ######
+
+    public void insert (double key){ // O(n) if the heap is full, otherwise O(log(n)), the id is 0 if ids are in use
+        checkKey(key);
+        if (this.size >= this.capacity - 1) { // check if the heap is full
+            resize();
+        }
+        this.size++;
+        this.keys[this.size] = key;
+        if (this.ids != null) {
+            this.ids[this.size] = 0;
+        }
+        percolateUp(this.size);
+    }
+    public void insertWithId (double key, int id){ // O(n) if the heap is full, otherwise O(log(n))
+        checkKey(key);
+        if (this.ids == null) {
+            this.ids = new int[this.capacity]; // keys inserted so far get id 0
+        }
+        if (this.size >= this.capacity - 1) { // check if the heap is full
+            resize();
+        }
+        this.size++;
+        this.keys[this.size] = key;
+        this.ids[this.size] = id;
+        percolateUp(this.size);
+    }
+    public double deleteMin(){ // O(log(n)), the minimum is always the root
+        if (isEmpty()) {
+            throw new NoSuchElementException("No element to be removed as the heap is empty.");
+        }
+        return removeAt(1);
+    }
+    public double deleteMax(){ // O(log(n)), the maximum is the root's larger child (or the root itself if it is alone)
+        if (isEmpty()){
+            throw new NoSuchElementException("No element to be deleted as the Heap is empty.");
+        }
+        return removeAt(maxIndex());
+    }
+    public double findMin(){ // O(1) returns the minimum key in the heap otherwise, throws an exception.
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.keys[1];
+    }
+    public double findMax(){ // O(1) returns the maximum key in the heap otherwise, throws an exception.
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.keys[maxIndex()];
+    }
+    public int findMinId(){ // O(1) returns the id stored with the minimum key
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.ids == null ? 0 : this.ids[1];
+    }
+    public int findMaxId(){ // O(1) returns the id stored with the maximum key
+        if (isEmpty()){
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return this.ids == null ? 0 : this.ids[maxIndex()];
+    }
+    public int getSize () { // O(1), returns the size of the heap
+        return this.size;
+    }
+    private double removeAt(int i){ // O(log(n)), moves the last key into slot i and pushes it down
+        double removed = this.keys[i];
+        this.keys[i] = this.keys[this.size];
+        if (this.ids != null) {
+            this.ids[i] = this.ids[this.size];
+        }
+        this.size--;
+        if (i <= this.size) {
+            percolateDown(i);
+        }
+        return removed;
+    }
+    private void percolateUp (int i){
+        int p = parent(i);
+        if (p == 0) { // i is the root
+            return;
+        }
+        if (isMinLevel(i)) {
+            if (this.keys[i] > this.keys[p]) { // bigger than its max level parent, so it belongs to the max levels
+                swap(i, p);
+                percolateUpMax(p);
+            } else {
+                percolateUpMin(i);
+            }
+        } else {
+            if (this.keys[i] < this.keys[p]) { // smaller than its min level parent, so it belongs to the min levels
+                swap(i, p);
+                percolateUpMin(p);
+            } else {
+                percolateUpMax(i);
+            }
+        }
+    }
+    private void percolateUpMin (int i){ // walks up the min levels only, i>3 is to ensure that i has a grandparent
+        while (i > 3 && this.keys[i] < this.keys[grandparent(i)]) {
+            swap(i, grandparent(i));
+            i = grandparent(i);
+        }
+    }
+    private void percolateUpMax (int i){ // walks up the max levels only, i>3 is to ensure that i has a grandparent
+        while (i > 3 && this.keys[i] > this.keys[grandparent(i)]) {
+            swap(i, grandparent(i));
+            i = grandparent(i);
+        }
+    }
+    private void percolateDown (int i){
+        if (isMinLevel(i)) {
+            percolateDownMin(i);
+        } else {
+            percolateDownMax(i);
+        }
+    }
+    private void percolateDownMin (int i){
+        int m;
+        while (leftChild(i) <= this.size) { // i has at least one child
+            m = smallestDescendant(i);
+            if (m > rightChild(i)) { // m is a grandchild
+                if (this.keys[m] < this.keys[i]) {
+                    swap(m, i);
+                    if (this.keys[m] > this.keys[parent(m)]) { // keep the max level parent the biggest
+                        swap(m, parent(m));
+                    }
+                    i = m;
+                } else {
+                    break;
+                }
+            } else { // m is a child
+                if (this.keys[m] < this.keys[i]) {
+                    swap(m, i);
+                }
+                break;
+            }
+        }
+    }
+    private void percolateDownMax (int i){
+        int m;
+        while (leftChild(i) <= this.size) { // i has at least one child
+            m = biggestDescendant(i);
+            if (m > rightChild(i)) { // m is a grandchild
+                if (this.keys[m] > this.keys[i]) {
+                    swap(m, i);
+                    if (this.keys[m] < this.keys[parent(m)]) { // keep the min level parent the smallest
+                        swap(m, parent(m));
+                    }
+                    i = m;
+                } else {
+                    break;
+                }
+            } else { // m is a child
+                if (this.keys[m] > this.keys[i]) {
+                    swap(m, i);
+                }
+                break;
+            }
+        }
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    // These functions are used to make the code more readable and to avoid code duplication.
+    private int smallestDescendant (int i){ // O(1), index of the smallest among the children and grandchildren of i
+        int best = leftChild(i);
+        int last = Math.min(leftChild(leftChild(i)) + 3, this.size);
+        if (rightChild(i) <= this.size && this.keys[rightChild(i)] < this.keys[best]) {
+            best = rightChild(i);
+        }
+        for (int g = leftChild(leftChild(i)); g <= last; g++) {
+            if (this.keys[g] < this.keys[best]) {
+                best = g;
+            }
+        }
+        return best;
+    }
+    private int biggestDescendant (int i){ // O(1), index of the biggest among the children and grandchildren of i
+        int best = leftChild(i);
+        int last = Math.min(leftChild(leftChild(i)) + 3, this.size);
+        if (rightChild(i) <= this.size && this.keys[rightChild(i)] > this.keys[best]) {
+            best = rightChild(i);
+        }
+        for (int g = leftChild(leftChild(i)); g <= last; g++) {
+            if (this.keys[g] > this.keys[best]) {
+                best = g;
+            }
+        }
+        return best;
+    }
+    private int maxIndex (){ // O(1), the maximum sits on the first max level unless the heap has a single key
+        if (this.size == 1) {
+            return 1;
+        }
+        if (this.size == 2 || this.keys[2] >= this.keys[3]) {
+            return 2;
+        }
+        return 3;
+    }
+    private void resize() { //O(n), helper function for the insert.
+        this.capacity *= 2;
+        double[] newKeys = new double[this.capacity];
+        System.arraycopy(this.keys, 1, newKeys, 1, this.size);
+        this.keys = newKeys;
+        if (this.ids != null) {
+            int[] newIds = new int[this.capacity];
+            System.arraycopy(this.ids, 1, newIds, 1, this.size);
+            this.ids = newIds;
+        }
+    }
+    private void checkKey (double key){ // O(1), NaN is neither smaller nor bigger than anything
+        if (Double.isNaN(key)) {
+            throw new IllegalArgumentException("Cannot Insert NaN to the heap");
+        }
+    }
+    private boolean isMinLevel (int i){ // O(1), levels alternate min/max starting with a min level at the root
+        return ((31 - Integer.numberOfLeadingZeros(i)) & 1) == 0;
+    }
+    private int parent(int i){ // O(1), helper function for better readability
+        return (i / 2);
+    }
+    private int grandparent(int i){ // O(1), helper function for better readability
+        return (i / 4);
+    }
+    private int leftChild (int i){ //O(1), helper function for better readability
+        return (2 * i);
+    }
+    private int rightChild (int i){ //O(1), helper function for better readability
+        return (2 * i + 1);
+    }
+    private void swap (int i, int j){ //O(1) helper function for the percolate functions, the id travels with its key.
+        double tempKey = this.keys[i];
+        this.keys[i] = this.keys[j];
+        this.keys[j] = tempKey;
+        if (this.ids != null) {
+            int tempId = this.ids[i];
+            this.ids[i] = this.ids[j];
+            this.ids[j] = tempId;
+        }
+    }
+    private boolean isEmpty() { // O(1), helper function to check if the heap is empty
+        return this.size == 0;
+    }
+}
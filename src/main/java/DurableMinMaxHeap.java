@@ -0,0 +1,331 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// A MinMaxHeap whose changes survive a crash. Every insert, deleteMin, deleteMax, update and remove is appended to
+// an operation log, and the log is written and fsynced once per group of operations (group commit), so durability
+// costs batched sequential writes instead of one fsync per operation. Every checkpointInterval operations the heap
+// is saved with MinMaxHeapSnapshot and a fresh log is started.
+//
+// On disk, generation g is snapshot-g (the heap after g checkpoints, absent for g = 0) plus log-g (everything since).
+// Recovery loads the newest snapshot and replays its log; a torn or corrupt tail record ends the replay.
+// Operations after the last commit() are lost in a crash, at most groupCommitSize of them. If writing the log fails,
+// the heap in memory is ahead of the log and later index based records would replay at the wrong places, so the
+// instance rejects every further operation; opening the directory again recovers the last committed state.
+//
+// A recovered heap hands out the handles of its elements through handles(), so elements from before a restart can
+// still be updated and removed durably.
+//
+// Log records are [int length][byte type][payload][int crc32 of type and payload]. Updates and removes are logged by
+// the element's minHeap index before the operation, which replay finds in the same place because the heap is
+// restored and rebuilt exactly.
+public class DurableMinMaxHeap <T extends Comparable <T>> implements Closeable {
+    private static final int DEFAULT_GROUP_COMMIT_SIZE = 64;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1 << 20;
+    private static final byte INSERT = 1;
+    private static final byte DELETE_MIN = 2;
+    private static final byte DELETE_MAX = 3;
+    private static final byte UPDATE = 4;
+    private static final byte REMOVE = 5;
+    private final Path directory;
+    private final HeapElementCodec<T> codec;
+    private final int groupCommitSize;
+    private final int checkpointInterval;
+    private final CRC32 crc = new CRC32();
+    private MinMaxHeap<T> heap;
+    private long generation;
+    private FileChannel log;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16); // records written since the last commit
+    private int recordStart; // where the record being written starts in pending
+    private int pendingOperations;
+    private int operationsSinceCheckpoint;
+    private boolean failed; // true while memory may be ahead of the log, it stays true if a write threw
+
+    // ###### CONSTRUCTORS ######
+
+    public DurableMinMaxHeap(Path directory, HeapElementCodec<T> codec) throws IOException { // O(n + log length), recovers whatever is in directory
+        this(directory, codec, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+    public DurableMinMaxHeap(Path directory, HeapElementCodec<T> codec, int groupCommitSize, int checkpointInterval) throws IOException {
+        if (groupCommitSize <= 0 || checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Group commit size and checkpoint interval must be at least 1");
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.groupCommitSize = groupCommitSize;
+        this.checkpointInterval = checkpointInterval;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    // ###### METHODS ######
+
+    public MinMaxHeap.Handle<T> insert (T element) throws IOException { // O(log(n)) plus an amortized share of a commit
+        checkUsable();
+        MinMaxHeap.Handle<T> handle = this.heap.insert(element);
+        this.failed = true; // until the record is written
+        int length = this.codec.encodedSize(element);
+        ByteBuffer record = beginRecord(INSERT, length);
+        this.codec.encode(element, record);
+        endRecord();
+        this.failed = false;
+        return handle;
+    }
+    public T deleteMin () throws IOException { // O(log(n)) plus an amortized share of a commit
+        checkUsable();
+        T min = this.heap.deleteMin();
+        this.failed = true;
+        beginRecord(DELETE_MIN, 0);
+        endRecord();
+        this.failed = false;
+        return min;
+    }
+    public T deleteMax () throws IOException { // O(log(n)) plus an amortized share of a commit
+        checkUsable();
+        T max = this.heap.deleteMax();
+        this.failed = true;
+        beginRecord(DELETE_MAX, 0);
+        endRecord();
+        this.failed = false;
+        return max;
+    }
+    public void update (MinMaxHeap.Handle<T> handle, Consumer<? super T> change) throws IOException { // O(log(n)), e.g. update(handle, rider -> rider.rideCompleted(5L))
+        checkUsable();
+        int i = this.heap.minIndexOf(handle);
+        this.failed = true; // the change itself can throw halfway
+        change.accept(handle.getElement());
+        this.heap.update(handle);
+        int length = this.codec.encodedSize(handle.getElement());
+        ByteBuffer record = beginRecord(UPDATE, Integer.BYTES + length);
+        record.putInt(i);
+        this.codec.encode(handle.getElement(), record); // the element after the change
+        endRecord();
+        this.failed = false;
+    }
+    public T remove (MinMaxHeap.Handle<T> handle) throws IOException { // O(log(n)) plus an amortized share of a commit
+        checkUsable();
+        int i = this.heap.minIndexOf(handle);
+        T element = this.heap.remove(handle);
+        this.failed = true;
+        beginRecord(REMOVE, Integer.BYTES).putInt(i);
+        endRecord();
+        this.failed = false;
+        return element;
+    }
+    public T findMin (){ // O(1)
+        return this.heap.findMin();
+    }
+    public T findMax (){ // O(1)
+        return this.heap.findMax();
+    }
+    public int getSize (){ // O(1)
+        return this.heap.getSize();
+    }
+    public List<MinMaxHeap.Handle<T>> handles (){ // O(n), a handle for every element in no particular order, recovered ones included
+        List<MinMaxHeap.Handle<T>> handles = new ArrayList<>(this.heap.getSize());
+        for (int i = 1; i <= this.heap.getSize(); i++) {
+            handles.add(this.heap.handleAt(i));
+        }
+        return handles;
+    }
+    public void commit () throws IOException { // one sequential write and one fsync for all pending operations
+        checkUsable();
+        this.failed = true; // a partly written group cannot be retried
+        flush();
+        this.failed = false;
+    }
+    public void checkpoint () throws IOException { // O(n), saves the heap and starts an empty log
+        checkUsable();
+        this.failed = true;
+        startGeneration();
+        this.failed = false;
+    }
+    public void close () throws IOException { // commits, unless a write failed, then only closes the log
+        try {
+            if (!this.failed) {
+                flush();
+            }
+        } finally {
+            this.log.close();
+        }
+    }
+
+    // ###### RECOVERY ######
+
+    private void recover () throws IOException {
+        this.generation = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "snapshot-*")) {
+            for (Path file : files) {
+                this.generation = Math.max(this.generation, generationOf(file));
+            }
+        }
+        if (this.generation == 0) {
+            this.heap = new MinMaxHeap<>();
+        } else {
+            this.heap = MinMaxHeapSnapshot.read(snapshotPath(this.generation), this.codec);
+        }
+        long validLength = replay(logPath(this.generation));
+        this.log = openLog(this.generation);
+        this.log.truncate(validLength); // drop a torn tail so new records follow the last good one
+        this.log.position(validLength);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "{log,snapshot}-*")) {
+            for (Path file : files) { // left behind by an interrupted checkpoint
+                long fileGeneration = generationOf(file);
+                if (fileGeneration >= 0 && fileGeneration < this.generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+    private long replay (Path logFile) throws IOException { // returns the length of the log up to the last good record
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            long fileLength = Files.size(logFile);
+            while (true) {
+                int length;
+                byte[] body;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    if (length < 1 || validLength + 2L * Integer.BYTES + length > fileLength) {
+                        break; // torn length field
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                this.crc.reset();
+                this.crc.update(body);
+                if ((int) this.crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(body));
+                validLength += 2L * Integer.BYTES + length;
+                this.operationsSinceCheckpoint++;
+            }
+        }
+        return validLength;
+    }
+    private void apply (ByteBuffer body){ // replays one logged operation on the heap, without logging it again
+        byte type = body.get();
+        switch (type) {
+            case INSERT:
+                this.heap.insert(this.codec.decode(body));
+                break;
+            case DELETE_MIN:
+                this.heap.deleteMin();
+                break;
+            case DELETE_MAX:
+                this.heap.deleteMax();
+                break;
+            case UPDATE:
+                int i = body.getInt();
+                this.heap.replaceAt(i, this.codec.decode(body));
+                break;
+            case REMOVE:
+                this.heap.removeAt(body.getInt());
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation in the heap log: " + type);
+        }
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private void checkUsable (){ // O(1)
+        if (this.failed) {
+            throw new IllegalStateException("An earlier write to the heap log failed, open the directory again to recover");
+        }
+    }
+    private void flush () throws IOException { // writes and fsyncs the pending records
+        if (this.pendingOperations == 0) {
+            return;
+        }
+        this.pending.flip();
+        while (this.pending.hasRemaining()) {
+            this.log.write(this.pending);
+        }
+        this.log.force(false);
+        this.pending.clear();
+        this.pendingOperations = 0;
+    }
+    private void startGeneration () throws IOException { // O(n), the checkpoint itself
+        flush();
+        long next = this.generation + 1;
+        MinMaxHeapSnapshot.write(this.heap, this.codec, snapshotPath(next));
+        FileChannel nextLog = openLog(next);
+        forceDirectory(); // snapshot-next and log-next must survive a crash before the previous generation is gone
+        this.log.close();
+        Files.deleteIfExists(logPath(this.generation));
+        Files.deleteIfExists(snapshotPath(this.generation));
+        this.log = nextLog;
+        this.generation = next;
+        this.operationsSinceCheckpoint = 0;
+    }
+    private ByteBuffer beginRecord (byte type, int payloadLength){ // O(1) amortized, room for one record in the pending buffer
+        int needed = 2 * Integer.BYTES + 1 + payloadLength;
+        if (this.pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * this.pending.capacity(), this.pending.position() + needed));
+            this.pending.flip();
+            bigger.put(this.pending);
+            this.pending = bigger;
+        }
+        this.recordStart = this.pending.position();
+        this.pending.putInt(1 + payloadLength);
+        this.pending.put(type);
+        return this.pending;
+    }
+    private void endRecord () throws IOException { // closes the record with its checksum, then commits or checkpoints if it is time
+        int bodyStart = this.recordStart + Integer.BYTES; // the checksum covers the type and the payload
+        this.crc.reset();
+        this.crc.update(this.pending.array(), bodyStart, this.pending.position() - bodyStart);
+        this.pending.putInt((int) this.crc.getValue());
+        this.pendingOperations++;
+        this.operationsSinceCheckpoint++;
+        if (this.operationsSinceCheckpoint >= this.checkpointInterval) {
+            startGeneration();
+        } else if (this.pendingOperations >= this.groupCommitSize) {
+            flush();
+        }
+    }
+    private FileChannel openLog (long forGeneration) throws IOException {
+        FileChannel channel = FileChannel.open(logPath(forGeneration), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+    private void forceDirectory () throws IOException { // fsyncs the directory entries, the renamed snapshot and the new log
+        try (FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+    private static long generationOf (Path file){ // the g of log-g or snapshot-g, -1 for anything else (e.g. a snapshot-g.tmp)
+        String name = file.getFileName().toString();
+        String suffix = name.substring(name.indexOf('-') + 1);
+        if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Long.parseLong(suffix);
+    }
+    private Path logPath (long forGeneration){
+        return this.directory.resolve("log-" + forGeneration);
+    }
+    private Path snapshotPath (long forGeneration){
+        return this.directory.resolve("snapshot-" + forGeneration);
+    }
+}
@@ -10,6 +10,11 @@ public class GottRider implements Comparable<GottRider>{
         this.averageReview = averageReviewGiven;
         this.totalStarsGiven = previousRides * averageReviewGiven;
     }
+    static GottRider restore (String name, long previousRides, double averageReview, double totalStarsGiven){ // O(1), rebuilds a rider exactly as it was encoded by GottRiderCodec
+        GottRider rider = new GottRider(name, previousRides, averageReview);
+        rider.totalStarsGiven = totalStarsGiven;
+        return rider;
+    }
     public void rideCompleted (Long starsGiven){ // O(1)
         this.previousRides++;
         this.totalStarsGiven += starsGiven;
@@ -33,4 +38,10 @@ public class GottRider implements Comparable<GottRider>{
     public double getAverageReviewGiven() { // O(1)
         return this.averageReview;
     }
+    public long getPreviousRides() { // O(1)
+        return this.previousRides;
+    }
+    double getTotalStarsGiven() { // O(1), package private, only needed to encode the rider
+        return this.totalStarsGiven;
+    }
 }
@@ -0,0 +1,35 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Compact GottRider record: name length (short) + UTF-8 name, previousRides (long), averageReview (double)
+// and totalStarsGiven (double), so a decoded rider continues exactly where the encoded one stopped.
+public class GottRiderCodec implements HeapElementCodec<GottRider>{
+    private static final int FIXED_SIZE = Short.BYTES + Long.BYTES + 2 * Double.BYTES;
+
+    public int encodedSize (GottRider rider){ // O(length of the name)
+        return FIXED_SIZE + nameBytes(rider).length;
+    }
+    public void encode (GottRider rider, ByteBuffer buffer){ // O(length of the name)
+        byte[] name = nameBytes(rider);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putLong(rider.getPreviousRides());
+        buffer.putDouble(rider.getAverageReviewGiven());
+        buffer.putDouble(rider.getTotalStarsGiven());
+    }
+    public GottRider decode (ByteBuffer buffer){ // O(length of the name)
+        byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(name);
+        long previousRides = buffer.getLong();
+        double averageReview = buffer.getDouble();
+        double totalStarsGiven = buffer.getDouble();
+        return GottRider.restore(new String(name, StandardCharsets.UTF_8), previousRides, averageReview, totalStarsGiven);
+    }
+    private byte[] nameBytes (GottRider rider){ // O(length of the name)
+        byte[] name = rider.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("Rider name is too long to encode");
+        }
+        return name;
+    }
+}
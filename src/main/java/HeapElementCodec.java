@@ -0,0 +1,8 @@
+import java.nio.ByteBuffer;
+
+// Turns heap elements into bytes and back, for MinMaxHeapSnapshot.
+public interface HeapElementCodec <T>{
+    int encodedSize (T element); // the exact number of bytes encode will write for element
+    void encode (T element, ByteBuffer buffer);
+    T decode (ByteBuffer buffer);
+}
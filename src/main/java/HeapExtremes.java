@@ -0,0 +1,19 @@
+// An immutable snapshot of a heap's minimum, maximum and size, published through a single volatile field so that
+// readers always see a matching min/max pair without taking the writers' lock.
+final class HeapExtremes <T>{
+    final T min;
+    final T max;
+    final int size;
+
+    HeapExtremes(T min, T max, int size) {
+        this.min = min;
+        this.max = max;
+        this.size = size;
+    }
+    static <T extends Comparable<T>> HeapExtremes<T> of(MinMaxHeap<T> heap) { // O(1), null for an empty heap
+        if (heap.getSize() == 0) {
+            return null;
+        }
+        return new HeapExtremes<>(heap.findMin(), heap.findMax(), heap.getSize());
+    }
+}
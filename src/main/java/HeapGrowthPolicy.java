@@ -0,0 +1,20 @@
+// Decides how much a MinMaxHeap grows when it is full and when it gives memory back after deletes.
+// Capacities count array slots, so a heap of capacity c holds up to c - 1 elements (index 0 is unused).
+// Growing and shrinking at different fill levels (hysteresis) keeps a heap that hovers around one size from
+// resizing back and forth.
+public interface HeapGrowthPolicy {
+    // Doubles when full, halves once less than a quarter is in use, so a halved heap is still half empty.
+    HeapGrowthPolicy DOUBLING = new HeapGrowthPolicy() {
+        @Override
+        public int grow (int capacity, int required) {
+            return (int) Math.max(Math.min(2L * capacity, Integer.MAX_VALUE - 8), required);
+        }
+        @Override
+        public int shrink (int capacity, int size) {
+            return size + 1 < capacity / 4 ? capacity / 2 : capacity;
+        }
+    };
+
+    int grow (int capacity, int required); // a capacity of at least required, called when the heap must grow
+    int shrink (int capacity, int size); // a smaller capacity to move into, or capacity to keep the current arrays
+}
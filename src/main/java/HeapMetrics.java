@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+// Counters for what a MinMaxHeap spends its time on: comparisons, swapMin/swapMax calls, resizes and the bytes they
+// copy, and for every kind of operation a histogram of its percolation depth (the swaps it needed in both heaps).
+// A heap only counts while metrics are enabled (MinMaxHeap.enableMetrics), otherwise every hook is a null check.
+// Like the heap itself, the counters are not thread safe.
+public class HeapMetrics {
+    public enum Operation { INSERT, DELETE_MIN, DELETE_MAX, UPDATE, REMOVE }
+
+    static final int MAX_DEPTH = 63; // deeper operations are counted in the last histogram bucket
+    // Bytes moved per element by a resize: the two element references, the handle reference (4 bytes each with
+    // compressed references) and the two int mappings, plus the two cached long keys of a heap ordered by a key
+    // extractor (MinMaxHeap.comparingLong, comparingDouble).
+    static final int BYTES_PER_ELEMENT = 3 * 4 + 2 * Integer.BYTES;
+    static final int BYTES_PER_KEYED_ELEMENT = BYTES_PER_ELEMENT + 2 * Long.BYTES;
+
+    private long comparisons;
+    private long minSwaps;
+    private long maxSwaps;
+    private long resizes;
+    private long bytesCopied;
+    private final long[][] depthHistograms = new long[Operation.values().length][MAX_DEPTH + 1];
+    private long swapsAtOperationStart;
+
+    // ###### HOOKS ######
+
+    void countComparison() {
+        this.comparisons++;
+    }
+    void countMinSwap() {
+        this.minSwaps++;
+    }
+    void countMaxSwap() {
+        this.maxSwaps++;
+    }
+    void countResize(int elementsCopied, int bytesPerElement) {
+        this.resizes++;
+        this.bytesCopied += (long) elementsCopied * bytesPerElement;
+    }
+    void beginOperation() {
+        this.swapsAtOperationStart = this.minSwaps + this.maxSwaps;
+    }
+    void endOperation(Operation operation) {
+        long depth = Math.min(this.minSwaps + this.maxSwaps - this.swapsAtOperationStart, MAX_DEPTH);
+        this.depthHistograms[operation.ordinal()][(int) depth]++;
+    }
+
+    // ###### METHODS ######
+
+    public long getComparisons() { // O(1)
+        return this.comparisons;
+    }
+    public long getMinSwaps() { // O(1)
+        return this.minSwaps;
+    }
+    public long getMaxSwaps() { // O(1)
+        return this.maxSwaps;
+    }
+    public long getResizes() { // O(1)
+        return this.resizes;
+    }
+    public long getBytesCopied() { // O(1)
+        return this.bytesCopied;
+    }
+    public long[] getDepthHistogram(Operation operation) { // O(1), histogram[d] is how many operations needed d swaps
+        return this.depthHistograms[operation.ordinal()].clone();
+    }
+    public void reset() { // O(1)
+        this.comparisons = 0;
+        this.minSwaps = 0;
+        this.maxSwaps = 0;
+        this.resizes = 0;
+        this.bytesCopied = 0;
+        for (long[] histogram : this.depthHistograms) {
+            Arrays.fill(histogram, 0);
+        }
+    }
+    public String toString() {
+        return "Comparisons: " + this.comparisons + " Min Swaps: " + this.minSwaps + " Max Swaps: " + this.maxSwaps
+                + " Resizes: " + this.resizes + " Bytes Copied: " + this.bytesCopied;
+    }
+}
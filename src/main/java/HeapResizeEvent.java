@@ -0,0 +1,27 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A JFR event for every MinMaxHeap resize, so resizes can be lined up with GC pauses and latency in a recording.
+// Recorded whenever JFR has it enabled, independently of HeapMetrics.
+@Name("MinMaxHeap.Resize")
+@Label("MinMaxHeap Resize")
+@Category("MinMaxHeap")
+@Description("The heap's arrays were reallocated and the elements copied over")
+class HeapResizeEvent extends Event {
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Elements Copied")
+    int elementsCopied;
+
+    @Label("Bytes Copied")
+    @DataAmount
+    long bytesCopied;
+}
@@ -1,13 +1,64 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class MinMaxHeap <T extends Comparable <T>>{
+public class MinMaxHeap <T extends Comparable <T>> implements Iterable<T>{
     private static final int DEFAULT_CAPACITY = 50;
+    private static final int DEFAULT_ARITY = 2;
+    private static final int PARALLEL_BUILD_THRESHOLD = 1 << 16; // smaller arrays are built faster by one thread
+    private static final int BUILD_CHUNK = 1 << 14; // elements per task when copying or remapping in parallel
     private T[] minHeap;
     private T[] maxHeap;
     private int[] minToMax;
     private int[] maxToMin;
+    private Handle<T>[] handles; // handles[i] is the handle of minHeap[i], null for elements that never got one
     private int capacity; // a private field that I use to keep track of the heap capacity. (the size of the heap)
     private int size; // the actual size of the heap
+    private boolean bounded; // a bounded heap never grows past its initial capacity
+    private int arity = DEFAULT_ARITY; // children per node, both heaps are arity-ary trees
+    private int minimumCapacity; // deletes never shrink the heap below this capacity
+    private HeapGrowthPolicy growthPolicy = HeapGrowthPolicy.DOUBLING;
+    private Comparator<? super T> comparator; // null for the natural order (compareTo)
+    private ToLongFunction<? super T> keyExtractor; // null unless the heap orders by a cached primitive key
+    private long[] minKeys; // minKeys[i] is the key of minHeap[i], only in key mode
+    private long[] maxKeys; // maxKeys[i] is the key of maxHeap[i], only in key mode
+    private HeapMetrics metrics; // null unless metrics are enabled
+    private int modCount; // counts changes, so iterators can fail fast instead of returning a mixed up order
+
+    // A handle points at one element of the heap for as long as that element is in it. It follows the element
+    // through every swap, so after the element's key changed (e.g. GottRider.rideCompleted) the heap can put
+    // it back in place in O(log(n)) instead of being rebuilt.
+    public static final class Handle <T extends Comparable <T>>{
+        private MinMaxHeap<T> heap; // the heap the element is in, null once it was removed
+        private final T element;
+        private int minIndex; // the element's current index in the minHeap, 0 once it was removed
+
+        private Handle(MinMaxHeap<T> heap, T element, int minIndex) {
+            this.heap = heap;
+            this.element = element;
+            this.minIndex = minIndex;
+        }
+        public T getElement() { // O(1)
+            return this.element;
+        }
+        public boolean isValid() { // O(1), false once the element was removed from the heap
+            return this.heap != null;
+        }
+    }
 
     // ###### CONSTRUCTORS ######
 
@@ -17,7 +68,9 @@ public class MinMaxHeap <T extends Comparable <T>>{
         this.maxHeap = (T[]) new Comparable[capacity];
         this.minToMax = new int[capacity];
         this.maxToMin = new int[capacity];
+        this.handles = (Handle<T>[]) new Handle[capacity];
         this.size = 0;
+        this.minimumCapacity = capacity;
 
     }
     public MinMaxHeap(int initialCapacity){ // O(1), constructing a heap of size initialCapacity
@@ -29,7 +82,30 @@ public class MinMaxHeap <T extends Comparable <T>>{
         this.maxHeap = (T[]) new Comparable[capacity];
         this.minToMax = new int[capacity];
         this.maxToMin = new int[capacity];
+        this.handles = (Handle<T>[]) new Handle[capacity];
         this.size = 0;
+        this.minimumCapacity = capacity;
+    }
+    public MinMaxHeap(int maxSize, boolean bounded){ // O(1), a bounded heap holds at most maxSize elements and never resizes
+        this(maxSize);
+        this.bounded = bounded;
+    }
+    public MinMaxHeap(int initialCapacity, int arity){ // O(1), a wider tree is shallower and keeps siblings in adjacent cache lines
+        this(initialCapacity);
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
+        this.arity = arity;
+    }
+    public MinMaxHeap(Comparator<? super T> comparator){ // O(1), orders the elements by comparator instead of compareTo
+        this(DEFAULT_CAPACITY - 1, comparator);
+    }
+    public MinMaxHeap(int initialCapacity, Comparator<? super T> comparator){ // O(1)
+        this(initialCapacity);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+        this.comparator = comparator;
     }
     public MinMaxHeap(T[]initialData){  // O(n), constructing a heap from InitialData array
         this.size = initialData.length;
@@ -38,6 +114,12 @@ public class MinMaxHeap <T extends Comparable <T>>{
         this.maxHeap = (T[]) new Comparable[this.size+1]; // size is +1 because im using 1 based indexing
         this.minToMax = new int[this.size+1]; // size is +1 because im using 1 based indexing
         this.maxToMin = new int[this.size+1]; // size is +1 because im using 1 based indexing
+        this.handles = (Handle<T>[]) new Handle[this.size+1]; // elements given up front have no handles
+        this.minimumCapacity = Math.min(this.capacity, DEFAULT_CAPACITY); // free to shrink back once the data is drained
+        if (this.size >= PARALLEL_BUILD_THRESHOLD) {
+            parallelBuild(initialData);
+            return;
+        }
         int j = 1; // j starts from 1 because of the 1 based indexing
         int id = 0;
         // Copy the initialData array into the minHeap and maxHeap in no particular order.
@@ -49,16 +131,28 @@ public class MinMaxHeap <T extends Comparable <T>>{
             j++;
             id++;
         }
-        // Build the minHeap and maxHeap according to the Heap property.
-        for (int i = this.size / 2; i >= 1; i--) {
-            percolateDownMin(i);
-            percolateDownMax(i);
-        }
+        heapify();
+    }
+    MinMaxHeap(T[] minHeap, T[] maxHeap, int[] minToMax, int[] maxToMin, int size, boolean bounded, int arity){ // O(1), wraps arrays that already satisfy the heap property, used by MinMaxHeapSnapshot
+        this.capacity = minHeap.length;
+        this.minHeap = minHeap;
+        this.maxHeap = maxHeap;
+        this.minToMax = minToMax;
+        this.maxToMin = maxToMin;
+        this.handles = (Handle<T>[]) new Handle[this.capacity];
+        this.size = size;
+        this.bounded = bounded;
+        this.arity = arity;
+        this.minimumCapacity = bounded ? this.capacity : Math.min(this.capacity, DEFAULT_CAPACITY);
     }
 
     // ###### METHODS ######
 
-    public void insert (T element){ // O(n) if the heap is full, otherwise O(log(n)), if the capacity is zero throws an exception
+    public Handle<T> insert (T element){ // O(n) if the heap is full, otherwise O(log(n)), if the capacity is zero throws an exception
+        makeRoomForOne(element);
+        return insertWith(element, new Handle<>(this, element, 0));
+    }
+    private void makeRoomForOne (T element){ // O(n) if the heap is full, otherwise O(1)
         if (this.capacity == 0) {
             throw new IllegalStateException("Cannot Insert an element to a 0 capacity heap");
         }
@@ -66,28 +160,104 @@ public class MinMaxHeap <T extends Comparable <T>>{
             throw new IllegalArgumentException ("Cannot Insert null element to the heap");
         }
         if (this.size >= this.capacity - 1) { // check if the heap is full
-            resize(); // resize the heap
+            if (this.bounded) {
+                throw new IllegalStateException("Cannot Insert an element to a full bounded heap");
+            }
+            grow(this.size + 2); // resize the heap, room for one more element
         }
+    }
+    private Handle<T> insertWith (T element, Handle<T> handle){ // O(log(n)), there is room for element, handle will point at it
+        long key = keyOf(element); // may reject the element, so before anything changes
         this.size++;
+        this.modCount++;
         this.minHeap[this.size] = element; // insert the element into the minHeap
         this.maxHeap[this.size] = element; // insert the element into the maxHeap
         this.minToMax[this.size] = this.size; // update the mapping
         this.maxToMin[this.size] = this.size; // update the mapping
+        storeKey(this.size, key);
+        handle.heap = this;
+        handle.minIndex = this.size;
+        this.handles[this.size] = handle;
+        beginOperation();
         percolateUpMin(this.size); // percolate up the minHeap
         percolateUpMax(this.size); // percolate up the maxHeap
+        endOperation(HeapMetrics.Operation.INSERT);
+        return handle;
+    }
+    public void insertAll (Collection<? extends T> elements){ // O(n+b) or O(b*log(n)) for a batch of b elements, whichever is cheaper
+        T[] batch = (T[]) elements.toArray(new Comparable[0]);
+        for (T element : batch) {
+            if (element == null) { // check the whole batch before changing anything
+                throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+            }
+        }
+        insertBatch(batch, 0, batch.length, null);
+    }
+    public void meld (MinMaxHeap<T> other){ // O(n+m) or O(m*log(n)), moves every element of other into this heap and empties other
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot meld a heap with itself");
+        }
+        insertBatch(other.minHeap, 1, other.size, other.handles); // the handles of other now point into this heap
+        for (int i = 1; i <= other.size; i++) { // other keeps no references to the moved elements
+            other.clearSlot(i);
+            other.handles[i] = null;
+        }
+        other.size = 0;
+        other.modCount++;
+        other.shrinkIfSparse();
+    }
+    @SafeVarargs
+    public static <T extends Comparable<T>> MinMaxHeap<T> merge (MinMaxHeap<T>... heaps){ // O(n), a new heap with the elements of all heaps, the heaps are not changed
+        int total = 0;
+        for (MinMaxHeap<T> heap : heaps) {
+            total += heap.size;
+        }
+        if (heaps.length == 0) {
+            return new MinMaxHeap<>();
+        }
+        T[] allElements = (T[]) new Comparable[total];
+        int j = 0;
+        for (MinMaxHeap<T> heap : heaps) { // concatenate the minHeaps, insertBatch rebuilds them in linear time
+            System.arraycopy(heap.minHeap, 1, allElements, j, heap.size);
+            j += heap.size;
+        }
+        MinMaxHeap<T> merged = heaps[0].emptyWithSameOrder(total); // ordered like the first heap
+        merged.insertBatch(allElements, 0, total, null); // a bottom up rebuild for all but tiny heaps
+        return merged;
+    }
+    public static <T extends Comparable<T>> MinMaxHeap<T> comparingDouble (ToDoubleFunction<? super T> key){ // O(1), e.g. comparingDouble(GottRider::getAverageReviewGiven)
+        return comparingLong(element -> sortableLong(key.applyAsDouble(element)));
+    }
+    public static <T extends Comparable<T>> MinMaxHeap<T> comparingLong (ToLongFunction<? super T> key){ // O(1), e.g. comparingLong(GottRider::getPreviousRides)
+        if (key == null) {
+            throw new IllegalArgumentException("Key extractor cannot be null");
+        }
+        MinMaxHeap<T> heap = new MinMaxHeap<>();
+        heap.keyExtractor = key;
+        heap.minKeys = new long[heap.capacity];
+        heap.maxKeys = new long[heap.capacity];
+        return heap;
     }
     public T deleteMin() {// O(log(n)), delete min from maxHeap and minHeap and update the minToMax and maxToMin
        int index;
        if (isEmpty()) {
            throw new NoSuchElementException("No element to be removed as the heap is empty.");
        }
+       beginOperation();
        T min = this.minHeap[1];
        index = this.minToMax[1]; // index that should be removed from the MaxHeap
        swapMin(1, this.size); // Swap the root with the last element
        this.size--;
+       this.modCount++;
        percolateDownMin(1); // according to the heap prop
        swapMax(index, this.size+1); // swap the element with the last one
-       percolateDownMax(index); // according to the heap prop
+       if (index <= this.size) {
+           fixMax(index); // the last element can be bigger than the parent of index, so it may need to go up
+       }
+       releaseHandle(this.size+1);
+       clearSlot(this.size+1);
+       endOperation(HeapMetrics.Operation.DELETE_MIN);
+       shrinkIfSparse();
        return min;
    }
     public T deleteMax(){ // O(log(n)), delete max from minHeap and maxHeap and update the minToMax and maxToMin
@@ -95,13 +265,21 @@ public class MinMaxHeap <T extends Comparable <T>>{
         if (isEmpty()){
             throw new NoSuchElementException("No element to be deleted as hhe Heap is empty.");
         }
+        beginOperation();
         T max = this.maxHeap[1];
         index = this.maxToMin[1]; // index that should be removed from the MinHeap
         swapMax(1,this.size);
         this.size--;
+        this.modCount++;
         percolateDownMax(1); // according to the heap prop.
         swapMin(index, this.size+1); // swap the element with the last one
-        percolateDownMin(index); // according to the heap prop.
+        if (index <= this.size) {
+            fixMin(index); // the last element can be smaller than the parent of index, so it may need to go up
+        }
+        releaseHandle(this.size+1);
+        clearSlot(this.size+1);
+        endOperation(HeapMetrics.Operation.DELETE_MAX);
+        shrinkIfSparse();
         return max;
     }
     public T findMin(){ // O(1) returns the minimum element in the heap otherwise, throws an exception.
@@ -119,19 +297,341 @@ public class MinMaxHeap <T extends Comparable <T>>{
     public int getSize () { // O(1), returns the size of the heap
         return this.size;
     }
+    public boolean isFull () { // O(1), only a bounded heap can be full
+        return this.bounded && this.size >= this.capacity - 1;
+    }
+    public boolean offerTop (T element){ // O(log(n)), keeps the biggest elements, returns false if the element was rejected
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+        if (!isFull()) {
+            insert(element);
+            return true;
+        }
+        if (compare(element, this.minHeap[1]) <= 0) { // not bigger than the current minimum, O(1) rejection
+            return false;
+        }
+        replaceMinElement(element); // the new element evicts the minimum
+        return true;
+    }
+    public boolean offerBottom (T element){ // O(log(n)), keeps the smallest elements, returns false if the element was rejected
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+        if (!isFull()) {
+            insert(element);
+            return true;
+        }
+        if (compare(element, this.maxHeap[1]) >= 0) { // not smaller than the current maximum, O(1) rejection
+            return false;
+        }
+        replaceMaxElement(element); // the new element evicts the maximum
+        return true;
+    }
+    public T insertThenDeleteMin (T element){ // O(log(n)), one sift in each heap instead of two, element itself if it is the new minimum
+        checkElement(element);
+        if (isEmpty() || compare(element, this.minHeap[1]) <= 0) { // it would be deleted right away, O(1)
+            return element;
+        }
+        beginOperation();
+        T min = this.minHeap[1];
+        replaceMinElement(element);
+        endOperation(HeapMetrics.Operation.DELETE_MIN);
+        return min;
+    }
+    public T insertThenDeleteMax (T element){ // O(log(n)), element itself if it is the new maximum
+        checkElement(element);
+        if (isEmpty() || compare(element, this.maxHeap[1]) >= 0) {
+            return element;
+        }
+        beginOperation();
+        T max = this.maxHeap[1];
+        replaceMaxElement(element);
+        endOperation(HeapMetrics.Operation.DELETE_MAX);
+        return max;
+    }
+    public T replaceMin (T element){ // O(log(n)), deletes the minimum, then inserts element, even if element is smaller
+        checkElement(element);
+        if (isEmpty()) {
+            throw new NoSuchElementException("No element to be replaced as the heap is empty.");
+        }
+        beginOperation();
+        T min = this.minHeap[1];
+        replaceAt(1, element);
+        endOperation(HeapMetrics.Operation.DELETE_MIN);
+        return min;
+    }
+    public T replaceMax (T element){ // O(log(n)), deletes the maximum, then inserts element, even if element is bigger
+        checkElement(element);
+        if (isEmpty()) {
+            throw new NoSuchElementException("No element to be replaced as the heap is empty.");
+        }
+        beginOperation();
+        T max = this.maxHeap[1];
+        replaceAt(this.maxToMin[1], element);
+        endOperation(HeapMetrics.Operation.DELETE_MAX);
+        return max;
+    }
+    public void update (Handle<T> handle){ // O(log(n)), puts the element back in place after its key changed in any direction
+        int i = checkHandle(handle);
+        long key = keyOf(handle.element);
+        this.modCount++;
+        storeKey(i, key); // the element changed, so its cached key did too
+        beginOperation();
+        fixMin(i);
+        fixMax(this.minToMax[handle.minIndex]);
+        endOperation(HeapMetrics.Operation.UPDATE);
+    }
+    public void increaseKey (Handle<T> handle){ // O(log(n)), the element's key only got bigger
+        int i = checkHandle(handle);
+        long key = keyOf(handle.element);
+        this.modCount++;
+        storeKey(i, key);
+        beginOperation();
+        percolateDownMin(i);
+        percolateUpMax(this.minToMax[handle.minIndex]);
+        endOperation(HeapMetrics.Operation.UPDATE);
+    }
+    public void decreaseKey (Handle<T> handle){ // O(log(n)), the element's key only got smaller
+        int i = checkHandle(handle);
+        long key = keyOf(handle.element);
+        this.modCount++;
+        storeKey(i, key);
+        beginOperation();
+        percolateUpMin(i);
+        percolateDownMax(this.minToMax[handle.minIndex]);
+        endOperation(HeapMetrics.Operation.UPDATE);
+    }
+    public T remove (Handle<T> handle){ // O(log(n)), removes the element from anywhere in the heap
+        int i = checkHandle(handle);
+        beginOperation();
+        T element = removeAt(i);
+        endOperation(HeapMetrics.Operation.REMOVE);
+        return element;
+    }
+    public void ensureCapacity (int minCapacity){ // O(n) if the heap has to grow, otherwise O(1), room for minCapacity elements without resizing
+        int required = minCapacity + 1; // +1 because im using 1 based indexing
+        if (required > this.capacity) {
+            if (this.bounded) {
+                throw new IllegalStateException("Cannot grow a bounded heap");
+            }
+            resizeTo(required);
+        }
+        this.minimumCapacity = Math.max(this.minimumCapacity, required); // reserved room is kept through deletes
+    }
+    public void trimToSize (){ // O(n), shrinks the arrays to the current size, a bounded heap keeps its capacity
+        if (this.bounded || this.capacity <= this.size + 1) {
+            return;
+        }
+        resizeTo(this.size + 1);
+        this.minimumCapacity = this.capacity;
+    }
+    public void setGrowthPolicy (HeapGrowthPolicy growthPolicy){ // O(1), used from the next resize on
+        if (growthPolicy == null) {
+            throw new IllegalArgumentException("Growth policy cannot be null");
+        }
+        this.growthPolicy = growthPolicy;
+    }
+    public List<T> deleteMinimums (int k){ // O(k*log(n)), or O(n + k*log(k)) when k is a large part of the heap, the k smallest, smallest first
+        List<T> elements = new ArrayList<>(Math.max(0, Math.min(k, this.size)));
+        deleteExtremes(k, true, elements);
+        return elements;
+    }
+    public List<T> deleteMaximums (int k){ // like deleteMinimums, the k biggest, biggest first
+        List<T> elements = new ArrayList<>(Math.max(0, Math.min(k, this.size)));
+        deleteExtremes(k, false, elements);
+        return elements;
+    }
+    public int drainTo (Collection<? super T> target, int k){ // like deleteMinimums, adds the k smallest to target, returns how many
+        if (target == null) {
+            throw new IllegalArgumentException("Cannot drain into a null collection");
+        }
+        return deleteExtremes(k, true, target);
+    }
+    public List<T> range (T lo, T hi){ // O(k*arity) for the k elements not bigger than hi, the elements within [lo, hi] in no particular order
+        checkRange(lo, hi);
+        List<T> elements = new ArrayList<>();
+        if (!isEmpty()) {
+            visitRange(1, lo, hi, elements);
+        }
+        return elements;
+    }
+    public int countInRange (T lo, T hi){ // O(k*arity) like range, without collecting the elements
+        checkRange(lo, hi);
+        return isEmpty() ? 0 : visitRange(1, lo, hi, null);
+    }
+    public Iterator<T> ascendingIterator (){ // O(1), then O(log(k)) per element, the smallest first, the heap is not changed
+        return new SortedIterator(true);
+    }
+    public Iterator<T> descendingIterator (){ // O(1), then O(log(k)) per element, the biggest first
+        return new SortedIterator(false);
+    }
+    @Override
+    public Iterator<T> iterator (){ // O(1), then O(1) per element, in no particular order (the minHeap array order)
+        return new ArrayIterator();
+    }
+    @Override
+    public Spliterator<T> spliterator (){ // O(1), splits the minHeap array in halves for parallel streams, in no particular order
+        return new ArraySpliterator(1, this.size + 1, this.modCount);
+    }
+    public Stream<T> stream (){ // O(1), unordered, stream().parallel() traverses the array in parallel
+        return StreamSupport.stream(spliterator(), false);
+    }
+    public HeapMetrics enableMetrics (){ // O(1), starts counting, returns the (possibly already running) metrics
+        if (this.metrics == null) {
+            this.metrics = new HeapMetrics();
+        }
+        return this.metrics;
+    }
+    public void disableMetrics (){ // O(1), stops counting, the metrics returned so far keep their values
+        this.metrics = null;
+    }
+    public HeapMetrics getMetrics (){ // O(1), null while metrics are disabled
+        return this.metrics;
+    }
+    T removeAt (int i){ // O(log(n)), package private, removes minHeap[i] from both heaps
+        int index = this.minToMax[i]; // index that should be removed from the MaxHeap
+        T element = this.minHeap[i];
+        swapMin(i, this.size); // move the element to the end of both heaps
+        swapMax(index, this.size);
+        this.size--;
+        this.modCount++;
+        releaseHandle(this.size+1);
+        clearSlot(this.size+1);
+        if (i <= this.size) { // the element that took its place can go either way
+            fixMin(i);
+        }
+        if (index <= this.size) {
+            fixMax(index);
+        }
+        shrinkIfSparse();
+        return element;
+    }
+    private void insertBatch (T[] batch, int from, int count, Handle<T>[] batchHandles){ // grows once, then percolates or rebuilds
+        if (count == 0) {
+            return;
+        }
+        int newSize = this.size + count;
+        long[] keys = null; // every key before anything changes, a rejected key leaves the heap as it was
+        if (this.keyExtractor != null) {
+            keys = new long[count];
+            for (int k = 0; k < count; k++) {
+                keys[k] = keyOf(batch[from + k]);
+            }
+        }
+        this.modCount++;
+        if (newSize >= this.capacity) { // grow once for the whole batch
+            if (this.bounded) {
+                throw new IllegalStateException("Cannot Insert the elements to a full bounded heap");
+            }
+            grow(newSize + 1);
+        }
+        // Percolating each element up costs about b*log(n) comparisons, a bottom up rebuild about 2*(n+b).
+        boolean rebuild = (long) count * log2(newSize) >= 2L * newSize;
+        for (int k = from; k < from + count; k++) {
+            this.size++;
+            this.minHeap[this.size] = batch[k];
+            this.maxHeap[this.size] = batch[k];
+            this.minToMax[this.size] = this.size;
+            this.maxToMin[this.size] = this.size;
+            storeKey(this.size, keys == null ? 0 : keys[k - from]);
+            if (batchHandles != null && batchHandles[k] != null) { // adopt the handle of a melded element
+                this.handles[this.size] = batchHandles[k];
+                batchHandles[k].heap = this;
+                batchHandles[k].minIndex = this.size;
+            }
+            if (!rebuild) {
+                percolateUpMin(this.size);
+                percolateUpMax(this.size);
+            }
+        }
+        if (rebuild) {
+            heapify();
+        }
+    }
+    private int deleteExtremes (int k, boolean min, Collection<? super T> target){ // returns the number of elements removed
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        k = Math.min(k, this.size);
+        // Deleting one at a time costs about k*log(n) comparisons, finding the k in a frontier and rebuilding what is
+        // left about k*log(k) + 2*n, the same trade off as insertBatch.
+        if ((long) k * log2(Math.max(this.size, 1)) < 2L * this.size) {
+            for (int i = 0; i < k; i++) {
+                target.add(min ? deleteMin() : deleteMax());
+            }
+            return k;
+        }
+        boolean[] removed = new boolean[this.size + 1]; // by minHeap index
+        SortedIterator extremes = new SortedIterator(min);
+        for (int i = 0; i < k; i++) {
+            target.add(extremes.next());
+            removed[min ? extremes.lastIndex : this.maxToMin[extremes.lastIndex]] = true;
+        }
+        int kept = 0;
+        for (int i = 1; i <= this.size; i++) { // compact the rest to the front of the minHeap, handles follow their element
+            if (removed[i]) {
+                releaseHandle(i);
+                continue;
+            }
+            kept++;
+            this.minHeap[kept] = this.minHeap[i];
+            this.handles[kept] = this.handles[i];
+            if (this.handles[kept] != null) {
+                this.handles[kept].minIndex = kept;
+            }
+            if (this.minKeys != null) {
+                this.minKeys[kept] = this.minKeys[i];
+                this.maxKeys[kept] = this.minKeys[i];
+            }
+            this.maxHeap[kept] = this.minHeap[kept];
+            this.minToMax[kept] = kept;
+            this.maxToMin[kept] = kept;
+        }
+        for (int i = kept + 1; i <= this.size; i++) {
+            clearSlot(i);
+            this.handles[i] = null;
+        }
+        this.size = kept;
+        this.modCount++;
+        heapify();
+        shrinkIfSparse();
+        return k;
+    }
+    private void replaceMinElement (T element){ // O(log(n)), overwrites the minimum with a bigger element in both heaps
+        int index = this.minToMax[1]; // where the minimum sits in the maxHeap
+        long key = keyOf(element);
+        this.modCount++;
+        releaseHandle(1);
+        this.minHeap[1] = element;
+        this.maxHeap[index] = element;
+        storeKey(1, key);
+        percolateDownMin(1); // bigger than the old minimum, so it can only go down the minHeap
+        percolateUpMax(index); // and only up the maxHeap
+    }
+    private void replaceMaxElement (T element){ // O(log(n)), overwrites the maximum with a smaller element in both heaps
+        int index = this.maxToMin[1]; // where the maximum sits in the minHeap
+        long key = keyOf(element);
+        this.modCount++;
+        releaseHandle(index);
+        this.maxHeap[1] = element;
+        this.minHeap[index] = element;
+        storeKey(index, key);
+        percolateDownMax(1); // smaller than the old maximum, so it can only go down the maxHeap
+        percolateUpMin(index); // and only up the minHeap
+    }
     private void percolateDownMax (int i){
-        int left;
-        int right;
+        int first;
+        int last;
         int maximal;
-        while ( 2 * i <= this.size) { //percolate down the max heap, 2*i<=size is to ensure that it has at least one child.
-            left = leftChild(i);
-            right = rightChild(i);
+        while (firstChild(i) <= this.size) { //percolate down the max heap, firstChild(i)<=size is to ensure that it has at least one child.
+            first = firstChild(i);
+            last = Math.min(first + this.arity - 1, this.size);
             maximal = i;
-            if (left <= this.size && this.maxHeap[left].compareTo(this.maxHeap[maximal]) > 0) {
-                maximal = left;
-            }
-            if (right <= this.size && this.maxHeap[right].compareTo(this.maxHeap[maximal]) > 0) {
-                maximal = right;
+            for (int child = first; child <= last; child++) { // the children are next to each other in the array
+                if (compareMax(child, maximal) > 0) {
+                    maximal = child;
+                }
             }
             if (maximal != i) {
                 swapMax(maximal, i);
@@ -142,24 +642,23 @@ public class MinMaxHeap <T extends Comparable <T>>{
         }
     }
     private void percolateUpMax (int i){
-        while (i > 1 && this.maxHeap[i].compareTo(this.maxHeap[parent(i)]) > 0) { //percolate up the max heap ,i>1 is to ensure that im not in the root
+        while (i > 1 && compareMax(i, parent(i)) > 0) { //percolate up the max heap ,i>1 is to ensure that im not in the root
             swapMax(i, parent(i));
             i = parent(i);
         }
     }
     private void percolateDownMin (int i){
-        int left;
-        int right;
+        int first;
+        int last;
         int minimal;
-        while (2 * i <= this.size) { //percolate down the min heap, 2*i<=size is to ensure that it has at least one child.
-            left = leftChild(i);
-            right = rightChild(i);
+        while (firstChild(i) <= this.size) { //percolate down the min heap, firstChild(i)<=size is to ensure that it has at least one child.
+            first = firstChild(i);
+            last = Math.min(first + this.arity - 1, this.size);
             minimal = i;
-            if (left <= this.size && this.minHeap[left].compareTo(this.minHeap[minimal]) < 0) {
-                minimal = left;
-            }
-            if (right <= this.size && this.minHeap[right].compareTo(this.minHeap[minimal]) < 0) {
-                minimal = right;
+            for (int child = first; child <= last; child++) {
+                if (compareMin(child, minimal) < 0) {
+                    minimal = child;
+                }
             }
             if (minimal != i) {
                 swapMin(minimal, i);
@@ -170,63 +669,577 @@ public class MinMaxHeap <T extends Comparable <T>>{
         }
     }
     private void percolateUpMin (int i){
-        while (i > 1 && this.minHeap[i].compareTo(this.minHeap[parent(i)]) < 0) { //percolate up the min heap, i>1 is to ensure that im not in the root
+        while (i > 1 && compareMin(i, parent(i)) < 0) { //percolate up the min heap, i>1 is to ensure that im not in the root
             swapMin(i, parent(i));
             i = parent(i);
         }
     }
+    private void fixMin (int i){ // percolates the element at i up or down the minHeap, whichever is needed
+        if (i > 1 && compareMin(i, parent(i)) < 0) {
+            percolateUpMin(i);
+        } else {
+            percolateDownMin(i);
+        }
+    }
+    private void fixMax (int i){ // percolates the element at i up or down the maxHeap, whichever is needed
+        if (i > 1 && compareMax(i, parent(i)) > 0) {
+            percolateUpMax(i);
+        } else {
+            percolateDownMax(i);
+        }
+    }
+
+    // ###### ITERATORS ######
+    // All of them read the live arrays and throw a ConcurrentModificationException once the heap was changed
+    // by anything but themselves.
+
+    // Walks the minHeap (ascending) or the maxHeap (descending) in order without changing it. The frontier is a small
+    // heap of the indexes whose parent was already returned, so only the best of them can be next; returning the k
+    // first elements costs O(k*log(k)) comparisons, whatever the size of the heap.
+    private final class SortedIterator implements Iterator<T> {
+        private final boolean ascending;
+        private int[] frontier = new int[16]; // a binary heap of indexes into minHeap or maxHeap, 0 based
+        private int count;
+        private int lastIndex; // where the element returned last is, in the minHeap or the maxHeap
+        private final int expectedModCount = MinMaxHeap.this.modCount;
+
+        private SortedIterator(boolean ascending) {
+            this.ascending = ascending;
+            if (MinMaxHeap.this.size > 0) {
+                push(1);
+            }
+        }
+        @Override
+        public boolean hasNext() { // O(1)
+            return this.count > 0;
+        }
+        @Override
+        public T next() { // O(arity*log(k))
+            checkForComodification(this.expectedModCount);
+            if (this.count == 0) {
+                throw new NoSuchElementException("No more elements in the heap");
+            }
+            int top = this.frontier[0];
+            this.lastIndex = top;
+            this.count--;
+            if (this.count > 0) {
+                this.frontier[0] = this.frontier[this.count];
+                siftDown(0);
+            }
+            int first = firstChild(top);
+            int last = Math.min(first + MinMaxHeap.this.arity - 1, MinMaxHeap.this.size);
+            for (int child = first; child <= last; child++) { // the children are the only new candidates
+                push(child);
+            }
+            return this.ascending ? MinMaxHeap.this.minHeap[top] : MinMaxHeap.this.maxHeap[top];
+        }
+        private void push(int index) {
+            if (this.count == this.frontier.length) {
+                this.frontier = Arrays.copyOf(this.frontier, 2 * this.count);
+            }
+            int i = this.count++;
+            while (i > 0 && isBetter(index, this.frontier[(i - 1) / 2])) {
+                this.frontier[i] = this.frontier[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            this.frontier[i] = index;
+        }
+        private void siftDown(int i) {
+            int index = this.frontier[i];
+            while (2 * i + 1 < this.count) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.count && isBetter(this.frontier[child + 1], this.frontier[child])) {
+                    child++;
+                }
+                if (!isBetter(this.frontier[child], index)) {
+                    break;
+                }
+                this.frontier[i] = this.frontier[child];
+                i = child;
+            }
+            this.frontier[i] = index;
+        }
+        private boolean isBetter(int a, int b) { // heap index a comes before heap index b
+            return this.ascending ? compareMin(a, b) < 0 : compareMax(a, b) > 0;
+        }
+    }
+    private final class ArrayIterator implements Iterator<T> {
+        private int next = 1;
+        private final int expectedModCount = MinMaxHeap.this.modCount;
+
+        @Override
+        public boolean hasNext() {
+            return this.next <= MinMaxHeap.this.size;
+        }
+        @Override
+        public T next() {
+            checkForComodification(this.expectedModCount);
+            if (this.next > MinMaxHeap.this.size) {
+                throw new NoSuchElementException("No more elements in the heap");
+            }
+            return MinMaxHeap.this.minHeap[this.next++];
+        }
+    }
+    private final class ArraySpliterator implements Spliterator<T> {
+        private int from; // the next index to visit
+        private final int to; // exclusive
+        private final int expectedModCount;
+
+        private ArraySpliterator(int from, int to, int expectedModCount) {
+            this.from = from;
+            this.to = to;
+            this.expectedModCount = expectedModCount;
+        }
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (this.from >= this.to) {
+                return false;
+            }
+            checkForComodification(this.expectedModCount);
+            action.accept(MinMaxHeap.this.minHeap[this.from++]);
+            return true;
+        }
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            checkForComodification(this.expectedModCount);
+            T[] elements = MinMaxHeap.this.minHeap;
+            for (int i = this.from; i < this.to; i++) {
+                action.accept(elements[i]);
+            }
+            this.from = this.to;
+            checkForComodification(this.expectedModCount);
+        }
+        @Override
+        public Spliterator<T> trySplit() { // the first half goes to a new spliterator
+            int middle = (this.from + this.to) >>> 1;
+            if (middle <= this.from) {
+                return null;
+            }
+            ArraySpliterator prefix = new ArraySpliterator(this.from, middle, this.expectedModCount);
+            this.from = middle;
+            return prefix;
+        }
+        @Override
+        public long estimateSize() {
+            return this.to - this.from;
+        }
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+
+    // ###### PACKAGE PRIVATE ACCESS ######
+    // The backing arrays themselves, not copies, for MinMaxHeapSnapshot and DurableMinMaxHeap. Only indexes
+    // 1..getSize() are in use.
+    T[] minHeapArray() {
+        return this.minHeap;
+    }
+    int[] minToMaxArray() {
+        return this.minToMax;
+    }
+    int[] maxToMinArray() {
+        return this.maxToMin;
+    }
+    int minIndexOf(Handle<T> handle) { // the handle's element is at minHeap[minIndexOf(handle)]
+        return checkHandle(handle);
+    }
+    Handle<T> handleAt(int i) { // O(1), the handle of minHeap[i], created for elements that never got one (restored, replayed)
+        if (this.handles[i] == null) {
+            this.handles[i] = new Handle<>(this, this.minHeap[i], i);
+        }
+        return this.handles[i];
+    }
+    void replaceAt(int i, T element) { // O(log(n)), puts another element in place of minHeap[i], as if it changed key in place
+        int index = this.minToMax[i]; // where the element sits in the maxHeap, fixMin does not move it there
+        long key = keyOf(element);
+        this.modCount++;
+        releaseHandle(i);
+        this.minHeap[i] = element;
+        this.maxHeap[index] = element;
+        storeKey(i, key);
+        fixMin(i);
+        fixMax(index);
+    }
+    Handle<T> minHandle() { // the handle of the minimum, null if it has none
+        return this.handles[1];
+    }
+    Handle<T> maxHandle() { // the handle of the maximum, null if it has none
+        return this.handles[this.maxToMin[1]];
+    }
+    boolean owns(Handle<T> handle) { // O(1), the handle's element is in this heap
+        return handle != null && handle.heap == this;
+    }
+    void reinsert(Handle<T> handle) { // O(log(n)), inserts the element of a removed handle again, the same handle becomes valid for this heap
+        if (handle.isValid()) {
+            throw new IllegalArgumentException("Handle is still in a heap");
+        }
+        makeRoomForOne(handle.element);
+        insertWith(handle.element, handle);
+    }
+    int getArity() {
+        return this.arity;
+    }
+    int getCapacity() {
+        return this.capacity;
+    }
+    boolean isBounded() {
+        return this.bounded;
+    }
+    boolean isNaturallyOrdered() { // false if the order comes from a comparator or a key, which snapshots do not store
+        return this.comparator == null && this.keyExtractor == null;
+    }
 
     // ###### HELPER FUNCTIONS ######
     // These functions are used to make the code more readable and to avoid code duplication.
-    private void resize() { //O(n), helper function for the insert.
-        this.capacity *= 2;
-        T[] newMinHeap = (T[]) new Comparable[this.capacity]; // creating a new MinHeap with 2*capacity
-        T[] newMaxHeap = (T[]) new Comparable[this.capacity]; // creating a new MaxHeap with 2*capacity
-        int[] newMinToMaxMapping = new int[this.capacity]; // creating a new minToMax mapping with 2*capacity
-        int[] newMaxToMinMapping = new int[this.capacity]; // creating a new maxToMin mapping with 2*capacity
+    private void heapify() { // O(n), builds the minHeap and maxHeap according to the Heap property, bottom up.
+        for (int i = parent(this.size); i >= 1; i--) { // parent(size) is the last node with children
+            percolateDownMin(i);
+            percolateDownMax(i);
+        }
+    }
+    // The array constructor's build for large arrays. The minHeap and the maxHeap are heapified at the same time, each
+    // with its disjoint subtrees in parallel, while minToMax[i] (maxToMin[i]) only follows where the element at i
+    // came from. The mappings between the heaps are then computed from those origins in parallel passes.
+    private void parallelBuild (T[] initialData){ // O(n) work, about O(n/cores + log(n)^2) time
+        forEachChunk((from, to) -> { // copy in parallel, every element starts at its original position in both heaps
+            System.arraycopy(initialData, from - 1, this.minHeap, from, to - from);
+            System.arraycopy(initialData, from - 1, this.maxHeap, from, to - from);
+            for (int i = from; i < to; i++) {
+                this.minToMax[i] = i;
+                this.maxToMin[i] = i;
+            }
+        });
+        int forkLevels = 0; // fork at the top levels, enough subtrees to keep every core busy
+        for (long subtrees = 1; subtrees < 4L * ForkJoinPool.getCommonPoolParallelism(); subtrees *= this.arity) {
+            forkLevels++;
+        }
+        ForkJoinPool.commonPool().invoke(new BuildTask(1, true, forkLevels, new BuildTask(1, false, forkLevels, null)));
+        int[] maxPosition = new int[this.size + 1]; // maxPosition[origin] is where the element of that origin is in the maxHeap
+        forEachChunk((from, to) -> {
+            for (int j = from; j < to; j++) {
+                maxPosition[this.maxToMin[j]] = j;
+            }
+        });
+        forEachChunk((from, to) -> {
+            for (int i = from; i < to; i++) {
+                this.minToMax[i] = maxPosition[this.minToMax[i]];
+            }
+        });
+        forEachChunk((from, to) -> {
+            for (int i = from; i < to; i++) {
+                this.maxToMin[this.minToMax[i]] = i;
+            }
+        });
+    }
+    private final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int root;
+        private final boolean min;
+        private final int forkLevels; // levels below root that still fork
+        private final BuildTask sibling; // built alongside this task, the maxHeap next to the minHeap
+
+        private BuildTask(int root, boolean min, int forkLevels, BuildTask sibling) {
+            this.root = root;
+            this.min = min;
+            this.forkLevels = forkLevels;
+            this.sibling = sibling;
+        }
+        @Override
+        protected void compute() {
+            if (this.sibling != null) {
+                this.sibling.fork();
+            }
+            int first = firstChild(this.root);
+            int last = Math.min(first + arity - 1, size);
+            if (this.forkLevels > 0) {
+                List<BuildTask> children = new ArrayList<>(last - first + 1);
+                for (int child = first; child <= last; child++) {
+                    children.add(new BuildTask(child, this.min, this.forkLevels - 1, null));
+                }
+                invokeAll(children);
+                siftDownBuild(this.root, this.min);
+            } else {
+                buildSubtree(this.root, this.min);
+            }
+            if (this.sibling != null) {
+                this.sibling.join();
+            }
+        }
+    }
+    private void buildSubtree (int root, boolean min){ // O(subtree size), bottom up like heapify
+        int first = firstChild(root);
+        if (first > this.size) {
+            return; // a leaf is a heap
+        }
+        int last = Math.min(first + this.arity - 1, this.size);
+        for (int child = first; child <= last; child++) {
+            buildSubtree(child, min);
+        }
+        siftDownBuild(root, min);
+    }
+    private void siftDownBuild (int i, boolean min){ // percolateDown for the parallel build, moves the element and its origin only
+        T[] heap = min ? this.minHeap : this.maxHeap;
+        int[] origins = min ? this.minToMax : this.maxToMin;
+        T element = heap[i];
+        int origin = origins[i];
+        while (firstChild(i) <= this.size) {
+            int first = firstChild(i);
+            int last = Math.min(first + this.arity - 1, this.size);
+            int best = first;
+            for (int child = first + 1; child <= last; child++) {
+                if (min ? compare(heap[child], heap[best]) < 0 : compare(heap[child], heap[best]) > 0) {
+                    best = child;
+                }
+            }
+            if (min ? compare(heap[best], element) >= 0 : compare(heap[best], element) <= 0) {
+                break;
+            }
+            heap[i] = heap[best]; // move the child up into the hole
+            origins[i] = origins[best];
+            i = best;
+        }
+        heap[i] = element;
+        origins[i] = origin;
+    }
+    private void forEachChunk (ChunkAction action){ // runs action over [1, size] in parallel chunks of BUILD_CHUNK indexes
+        int chunks = (this.size + BUILD_CHUNK - 1) / BUILD_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = 1 + c * BUILD_CHUNK;
+            action.run(from, Math.min(from + BUILD_CHUNK, this.size + 1));
+        });
+    }
+    private interface ChunkAction {
+        void run(int from, int to); // indexes from inclusive, to exclusive
+    }
+    private void grow(int required) { //O(n), helper function for the insert, asks the growth policy for at least required slots.
+        int newCapacity = this.growthPolicy.grow(this.capacity, required);
+        if (newCapacity < required) {
+            throw new IllegalStateException("Growth policy returned a capacity of " + newCapacity + ", at least " + required + " is needed");
+        }
+        resizeTo(newCapacity);
+    }
+    private void shrinkIfSparse() { // O(1), or O(n) when the growth policy shrinks the heap, amortized by its hysteresis
+        if (this.bounded) {
+            return;
+        }
+        int newCapacity = Math.max(this.growthPolicy.shrink(this.capacity, this.size), Math.max(this.minimumCapacity, this.size + 1));
+        if (newCapacity < this.capacity) {
+            resizeTo(newCapacity);
+        }
+    }
+    private void clearSlot(int i) { // O(1), a vacated slot must not keep the removed element reachable
+        this.minHeap[i] = null;
+        this.maxHeap[i] = null;
+    }
+    private void resizeTo(int newCapacity) { //O(n), moves the heap into arrays of length newCapacity.
+        HeapResizeEvent event = new HeapResizeEvent();
+        event.begin();
+        int oldCapacity = this.capacity;
+        this.capacity = newCapacity;
+        T[] newMinHeap = (T[]) new Comparable[this.capacity]; // creating a new MinHeap with the new capacity
+        T[] newMaxHeap = (T[]) new Comparable[this.capacity]; // creating a new MaxHeap with the new capacity
+        int[] newMinToMaxMapping = new int[this.capacity]; // creating a new minToMax mapping with the new capacity
+        int[] newMaxToMinMapping = new int[this.capacity]; // creating a new maxToMin mapping with the new capacity
+        Handle<T>[] newHandles = (Handle<T>[]) new Handle[this.capacity];
+        if (this.minKeys != null) {
+            this.minKeys = Arrays.copyOf(this.minKeys, this.capacity);
+            this.maxKeys = Arrays.copyOf(this.maxKeys, this.capacity);
+        }
         for (int i = 1; i <= this.size; i++) { // create new mappings index starts from 1 because of the 1 based indexing until this.size which is the last element.
             newMinHeap[i] = this.minHeap[i];
             newMaxHeap[i] = this.maxHeap[i];
             newMinToMaxMapping[i] = this.minToMax[i];
             newMaxToMinMapping[i] = this.maxToMin[i];
+            newHandles[i] = this.handles[i];
         }
         // update new mappings
         this.minHeap = newMinHeap;
         this.maxHeap = newMaxHeap;
         this.minToMax = newMinToMaxMapping;
         this.maxToMin = newMaxToMinMapping;
+        this.handles = newHandles;
+        int bytesPerElement = this.minKeys == null ? HeapMetrics.BYTES_PER_ELEMENT : HeapMetrics.BYTES_PER_KEYED_ELEMENT;
+        if (this.metrics != null) {
+            this.metrics.countResize(this.size, bytesPerElement);
+        }
+        if (event.shouldCommit()) {
+            event.oldCapacity = oldCapacity;
+            event.newCapacity = newCapacity;
+            event.elementsCopied = this.size;
+            event.bytesCopied = (long) this.size * bytesPerElement;
+            event.commit();
+        }
     }
-    private int parent(int i){ // O(1), helper function for better readability
-        return (i / 2);
+    private static int log2(int n){ // O(1), floor of log2(n) for n >= 1
+        return 31 - Integer.numberOfLeadingZeros(n);
     }
-    private int leftChild (int i){ //O(1), helper function for better readability
-        return (2 * i);
+    private int parent(int i){ // O(1), helper function for better readability, i / 2 for a binary heap
+        return ((i - 2) / this.arity + 1);
     }
-    private int rightChild (int i){ //O(1), helper function for better readability
-        return (2 * i + 1);
+    private int firstChild (int i){ //O(1), helper function for better readability, 2 * i for a binary heap
+        return (this.arity * (i - 1) + 2);
     }
     private void swapMax (int i, int j){ //O(1) helper function for the percolate function.
+        if (this.metrics != null) {
+            this.metrics.countMaxSwap();
+        }
         int tempElementIndex;
         T tempElement = this.maxHeap[i];
         this.maxHeap[i] = this.maxHeap[j];
         this.maxHeap[j] = tempElement;
+        if (this.maxKeys != null) {
+            long tempKey = this.maxKeys[i];
+            this.maxKeys[i] = this.maxKeys[j];
+            this.maxKeys[j] = tempKey;
+        }
         tempElementIndex = this.maxToMin[i];
         this.maxToMin[i] = this.maxToMin[j];
         this.maxToMin[j] = tempElementIndex;
         this.minToMax[this.maxToMin[i]] = i;
         this.minToMax[this.maxToMin[j]] = j;
     }
-    private void swapMin (int i, int j){ // O(1) helper function for the percolate function.
+    private void swapMin (int i, int j){ // O(1) helper function for the percolate function, handles follow their element.
+        if (this.metrics != null) {
+            this.metrics.countMinSwap();
+        }
         int tempElementIndex;
         T tempElement = this.minHeap[i];
         this.minHeap[i] = this.minHeap[j];
         this.minHeap[j] = tempElement;
+        if (this.minKeys != null) {
+            long tempKey = this.minKeys[i];
+            this.minKeys[i] = this.minKeys[j];
+            this.minKeys[j] = tempKey;
+        }
+        Handle<T> tempHandle = this.handles[i];
+        this.handles[i] = this.handles[j];
+        this.handles[j] = tempHandle;
+        if (this.handles[i] != null) {
+            this.handles[i].minIndex = i;
+        }
+        if (this.handles[j] != null) {
+            this.handles[j].minIndex = j;
+        }
         tempElementIndex = this.minToMax[i];
         this.minToMax[i] = this.minToMax[j];
         this.minToMax[j] = tempElementIndex;
         this.maxToMin[this.minToMax[i]] = i;
         this.maxToMin[this.minToMax[j]] = j;
     }
+    private int compare (T a, T b){ // O(1), every comparison of the heap goes through here so it can be counted
+        if (this.metrics != null) {
+            this.metrics.countComparison();
+        }
+        if (this.keyExtractor != null) {
+            return Long.compare(this.keyExtractor.applyAsLong(a), this.keyExtractor.applyAsLong(b));
+        }
+        if (this.comparator != null) {
+            return this.comparator.compare(a, b);
+        }
+        return a.compareTo(b);
+    }
+    private int compareMin (int i, int j){ // O(1), compares minHeap[i] with minHeap[j], in key mode without touching the elements
+        if (this.minKeys == null) {
+            return compare(this.minHeap[i], this.minHeap[j]);
+        }
+        if (this.metrics != null) {
+            this.metrics.countComparison();
+        }
+        return Long.compare(this.minKeys[i], this.minKeys[j]);
+    }
+    private int compareMax (int i, int j){ // O(1), compares maxHeap[i] with maxHeap[j]
+        if (this.maxKeys == null) {
+            return compare(this.maxHeap[i], this.maxHeap[j]);
+        }
+        if (this.metrics != null) {
+            this.metrics.countComparison();
+        }
+        return Long.compare(this.maxKeys[i], this.maxKeys[j]);
+    }
+    private long keyOf (T element){ // O(1), the key to cache for element, 0 without a key extractor, throws for a NaN key
+        return this.keyExtractor == null ? 0 : this.keyExtractor.applyAsLong(element);
+    }
+    private void storeKey (int i, long key){ // O(1), caches the key of minHeap[i] in both key arrays, it must already be in both heaps
+        if (this.keyExtractor != null) {
+            this.minKeys[i] = key;
+            this.maxKeys[this.minToMax[i]] = key;
+        }
+    }
+    private MinMaxHeap<T> emptyWithSameOrder (int initialCapacity){ // O(capacity)
+        MinMaxHeap<T> heap = new MinMaxHeap<>(Math.max(initialCapacity, 1), this.arity);
+        heap.comparator = this.comparator;
+        heap.keyExtractor = this.keyExtractor;
+        if (this.keyExtractor != null) {
+            heap.minKeys = new long[heap.capacity];
+            heap.maxKeys = new long[heap.capacity];
+        }
+        return heap;
+    }
+    private static long sortableLong (double key){ // O(1), orders like Double.compare: flips the magnitude bits of negative numbers
+        if (Double.isNaN(key)) {
+            throw new IllegalArgumentException("Cannot order by a NaN key");
+        }
+        long bits = Double.doubleToLongBits(key);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+    private void beginOperation (){ // O(1), marks the start of an operation for the depth histograms
+        if (this.metrics != null) {
+            this.metrics.beginOperation();
+        }
+    }
+    private void endOperation (HeapMetrics.Operation operation){ // O(1)
+        if (this.metrics != null) {
+            this.metrics.endOperation(operation);
+        }
+    }
+    private void checkElement (T element){ // O(1)
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+    }
+    private int checkHandle (Handle<T> handle){ // O(1), returns the element's index in the minHeap
+        if (handle == null || handle.heap != this) {
+            throw new IllegalArgumentException("Handle does not belong to an element of this heap");
+        }
+        return handle.minIndex;
+    }
+    private void releaseHandle (int i){ // O(1), the element at minHeap[i] left the heap, its handle is no longer valid
+        Handle<T> handle = this.handles[i];
+        if (handle != null) {
+            handle.heap = null;
+            handle.minIndex = 0;
+            this.handles[i] = null;
+        }
+    }
+    private int visitRange (int i, T lo, T hi, List<T> elements){ // counts (and collects) the elements within [lo, hi] below minHeap[i]
+        if (compare(this.minHeap[i], hi) > 0) { // the whole subtree is bigger than hi, every element below is at least minHeap[i]
+            return 0;
+        }
+        int count = 0;
+        if (compare(this.minHeap[i], lo) >= 0) {
+            count++;
+            if (elements != null) {
+                elements.add(this.minHeap[i]);
+            }
+        }
+        int first = firstChild(i);
+        int last = Math.min(first + this.arity - 1, this.size);
+        for (int child = first; child <= last; child++) { // a node smaller than lo can still have children within the range
+            count += visitRange(child, lo, hi, elements);
+        }
+        return count;
+    }
+    private void checkRange (T lo, T hi){ // O(1)
+        if (lo == null || hi == null) {
+            throw new IllegalArgumentException("Range bounds cannot be null");
+        }
+    }
+    private void checkForComodification (int expectedModCount){ // O(1)
+        if (this.modCount != expectedModCount) {
+            throw new ConcurrentModificationException("The heap was changed during the iteration");
+        }
+    }
     private boolean isEmpty() { // O(1), helper function to check if the heap is empty
         return this.size == 0;
     }
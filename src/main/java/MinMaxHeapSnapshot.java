@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Saves a MinMaxHeap to a memory mapped file and maps it back without rebuilding it.
+// The file keeps the heap exactly as it is in memory, so restoring costs page-ins and decoding, not compareTo calls:
+//   header   : magic, version, size, capacity, bounded, arity
+//   minToMax : size ints
+//   maxToMin : size ints
+//   elements : size records in minHeap order, each one an int length followed by the codec's bytes
+// The maxHeap is not stored, maxHeap[minToMax[i]] is minHeap[i]. Comparators and key extractors cannot be stored,
+// so only heaps in the natural (compareTo) order can be saved.
+public final class MinMaxHeapSnapshot {
+    private static final int MAGIC = 0x4D4D4850; // "MMHP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 1;
+    private static final long WINDOW_SIZE = 64L << 20; // the file is mapped 64MB at a time, so it can exceed 2GB
+
+    private MinMaxHeapSnapshot() {
+    }
+
+    // ###### METHODS ######
+
+    public static <T extends Comparable<T>> void write (MinMaxHeap<T> heap, HeapElementCodec<T> codec, Path file) throws IOException { // O(n)
+        if (!heap.isNaturallyOrdered()) { // the restored heap would be checked against compareTo
+            throw new IllegalArgumentException("Only heaps ordered by compareTo can be saved");
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int size = heap.getSize();
+        T[] elements = heap.minHeapArray();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Window window = new Window(channel, FileChannel.MapMode.READ_WRITE);
+            ByteBuffer header = window.ensure(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(size);
+            header.putInt(heap.getCapacity());
+            header.put((byte) (heap.isBounded() ? 1 : 0));
+            header.putInt(heap.getArity());
+            window.putInts(heap.minToMaxArray(), size);
+            window.putInts(heap.maxToMinArray(), size);
+            for (int i = 1; i <= size; i++) {
+                int length = codec.encodedSize(elements[i]);
+                ByteBuffer record = window.ensure(Integer.BYTES + length);
+                record.putInt(length);
+                int start = record.position();
+                codec.encode(elements[i], record);
+                if (record.position() - start != length) {
+                    throw new IllegalStateException("Codec wrote a different number of bytes than encodedSize returned");
+                }
+            }
+            long length = window.position();
+            window.force();
+            channel.truncate(length); // mapping whole windows grew the file past the data
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    public static <T extends Comparable<T>> MinMaxHeap<T> read (Path file, HeapElementCodec<T> codec) throws IOException { // O(n), no comparisons
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Window window = new Window(channel, FileChannel.MapMode.READ_ONLY);
+            ByteBuffer header = window.ensure(HEADER_SIZE);
+            int version = header.getInt() == MAGIC ? header.getInt() : -1;
+            if (version != VERSION) {
+                throw new IOException("Not a heap snapshot: " + file);
+            }
+            int size = header.getInt();
+            int storedCapacity = header.getInt();
+            boolean bounded = header.get() != 0;
+            int arity = header.getInt();
+            if (arity < 2 || size < 0 || size > storedCapacity || storedCapacity > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupt heap snapshot header: " + file);
+            }
+            int capacity = Math.max(storedCapacity, size + 1);
+            T[] minHeap = (T[]) new Comparable[capacity];
+            T[] maxHeap = (T[]) new Comparable[capacity];
+            int[] minToMax = new int[capacity];
+            int[] maxToMin = new int[capacity];
+            window.getInts(minToMax, size);
+            window.getInts(maxToMin, size);
+            for (int i = 1; i <= size; i++) { // the mappings must be inverse permutations of 1..size
+                if (minToMax[i] < 1 || minToMax[i] > size || maxToMin[i] < 1 || maxToMin[i] > size || maxToMin[minToMax[i]] != i) {
+                    throw new IOException("Corrupt heap snapshot mapping at index " + i + ": " + file);
+                }
+            }
+            for (int i = 1; i <= size; i++) {
+                int length = window.ensure(Integer.BYTES).getInt();
+                if (length < 0) {
+                    throw new IOException("Corrupt heap snapshot record at index " + i + ": " + file);
+                }
+                ByteBuffer record = window.ensure(length);
+                int start = record.position();
+                minHeap[i] = codec.decode(record);
+                record.position(start + length);
+                maxHeap[minToMax[i]] = minHeap[i];
+            }
+            return new MinMaxHeap<>(minHeap, maxHeap, minToMax, maxToMin, size, bounded, arity);
+        }
+    }
+
+    // ###### HELPER FUNCTIONS ######
+
+    // A sliding mapping over the file. ensure(bytes) remaps from the current position whenever the next read or
+    // write would cross the end of the mapped window.
+    private static final class Window {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private long start; // file offset of the mapped window
+        private MappedByteBuffer buffer;
+
+        private Window(FileChannel channel, FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.mode = mode;
+        }
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (this.buffer == null || this.buffer.remaining() < bytes) {
+                long from = position();
+                long length = Math.max(WINDOW_SIZE, bytes);
+                if (this.mode == FileChannel.MapMode.READ_ONLY) {
+                    length = Math.min(length, this.channel.size() - from);
+                    if (length < bytes) {
+                        throw new IOException("Heap snapshot is truncated");
+                    }
+                }
+                force();
+                this.buffer = this.channel.map(this.mode, from, length);
+                this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+                this.start = from;
+            }
+            return this.buffer;
+        }
+        private long position() {
+            return this.buffer == null ? 0 : this.start + this.buffer.position();
+        }
+        private void putInts(int[] values, int count) throws IOException { // values[1..count], bulk copied through an IntBuffer view
+            int i = 1;
+            while (i <= count) {
+                ByteBuffer target = ensure(Integer.BYTES);
+                int n = Math.min(target.remaining() / Integer.BYTES, count - i + 1);
+                target.asIntBuffer().put(values, i, n);
+                target.position(target.position() + n * Integer.BYTES);
+                i += n;
+            }
+        }
+        private void getInts(int[] values, int count) throws IOException { // into values[1..count]
+            int i = 1;
+            while (i <= count) {
+                ByteBuffer source = ensure(Integer.BYTES);
+                int n = Math.min(source.remaining() / Integer.BYTES, count - i + 1);
+                IntBuffer ints = source.asIntBuffer();
+                ints.get(values, i, n);
+                source.position(source.position() + n * Integer.BYTES);
+                i += n;
+            }
+        }
+        private void force() {
+            if (this.buffer != null && this.mode == FileChannel.MapMode.READ_WRITE) {
+                this.buffer.force();
+            }
+        }
+    }
+}
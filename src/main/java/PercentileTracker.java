@@ -0,0 +1,166 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Running percentiles (e.g. p10, median, p90) of a changing set of elements, without sorting a copy on every read.
+// The elements are split into one MinMaxHeap bucket more than there are percentiles. Every element of bucket j is
+// at most every element of bucket j + 1, and the buckets hold exactly the ranks between two tracked percentiles, so
+// a percentile is the maximum of its bucket: O(1) to read. After an insert or a remove each bucket boundary moves by
+// at most one rank, which rebalancing fixes by moving the extreme of a bucket into its neighbour, O(log(n)) each.
+//
+// Percentiles use the nearest rank definition: the p percentile of n elements is the element of rank ceil(p*n),
+// counting from 1.
+public class PercentileTracker <T extends Comparable <T>>{
+    private final double[] percentiles; // ascending, each within (0, 1]
+    private final MinMaxHeap<T>[] buckets; // buckets[j] holds the ranks after percentile j - 1, up to percentile j
+    private int size; // the actual number of elements, over all buckets
+
+    // ###### CONSTRUCTORS ######
+
+    public PercentileTracker() { // O(1), tracks the median
+        this(0.5);
+    }
+    public PercentileTracker(double... percentiles) { // O(k), e.g. new PercentileTracker<>(0.1, 0.5, 0.9)
+        if (percentiles.length == 0) {
+            throw new IllegalArgumentException("At least one percentile must be tracked");
+        }
+        for (int j = 0; j < percentiles.length; j++) {
+            if (!(percentiles[j] > 0 && percentiles[j] <= 1) || (j > 0 && percentiles[j] <= percentiles[j - 1])) {
+                throw new IllegalArgumentException("Percentiles must be ascending and within (0, 1]");
+            }
+        }
+        this.percentiles = percentiles.clone();
+        this.buckets = (MinMaxHeap<T>[]) new MinMaxHeap[percentiles.length + 1];
+        for (int j = 0; j < this.buckets.length; j++) {
+            this.buckets[j] = new MinMaxHeap<>();
+        }
+    }
+
+    // ###### METHODS ######
+
+    public MinMaxHeap.Handle<T> insert (T element){ // O(k*log(n)), the handle stays valid while the element moves between buckets
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the tracker");
+        }
+        MinMaxHeap.Handle<T> handle = this.buckets[bucketFor(element)].insert(element);
+        this.size++;
+        rebalance();
+        return handle;
+    }
+    public T remove (MinMaxHeap.Handle<T> handle){ // O(k*log(n))
+        T element = this.buckets[bucketOf(handle)].remove(handle);
+        this.size--;
+        rebalance();
+        return element;
+    }
+    public void update (MinMaxHeap.Handle<T> handle){ // O(log(n)) if the element stays in its bucket, otherwise O(k*log(n))
+        int j = bucketOf(handle);
+        MinMaxHeap<T> bucket = this.buckets[j];
+        bucket.update(handle);
+        T element = handle.getElement();
+        int before = previousNonEmpty(j);
+        int after = nextNonEmpty(j);
+        if ((before >= 0 && element.compareTo(this.buckets[before].findMax()) < 0)
+                || (after >= 0 && element.compareTo(this.buckets[after].findMin()) > 0)) { // it crossed a percentile
+            bucket.remove(handle);
+            this.buckets[bucketFor(element)].reinsert(handle);
+            rebalance();
+        }
+    }
+    public T percentile (double p){ // O(1) for a tracked percentile p, normally O(1) (O(k) while buckets are empty)
+        int j = Arrays.binarySearch(this.percentiles, p);
+        if (j < 0) {
+            throw new IllegalArgumentException("Percentile " + p + " is not tracked");
+        }
+        if (this.size == 0) {
+            throw new NoSuchElementException("Tracker is empty");
+        }
+        int bucket = this.buckets[j].getSize() > 0 ? j : previousNonEmpty(j); // buckets 0..j hold exactly the ranks up to percentile j
+        return this.buckets[bucket].findMax();
+    }
+    public T median (){ // O(1), the median must be tracked
+        return percentile(0.5);
+    }
+    public T findMin (){ // O(k)
+        if (this.size == 0) {
+            throw new NoSuchElementException("Tracker is empty");
+        }
+        return this.buckets[nextNonEmpty(-1)].findMin();
+    }
+    public T findMax (){ // O(k)
+        if (this.size == 0) {
+            throw new NoSuchElementException("Tracker is empty");
+        }
+        return this.buckets[previousNonEmpty(this.buckets.length)].findMax();
+    }
+    public int getSize (){ // O(1)
+        return this.size;
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private void rebalance (){ // O(k*log(n)) amortized, moves extremes between neighbours, left to right, until every bucket holds its ranks
+        int prefix = 0; // elements in buckets 0..j
+        for (int j = 0; j < this.percentiles.length; j++) {
+            prefix += this.buckets[j].getSize();
+            int target = rank(j);
+            while (prefix > target) { // too many ranks on the left, the biggest one moves right
+                moveMax(j);
+                prefix--;
+            }
+            while (prefix < target) { // too few, the smallest element right of j moves left
+                int from = nextNonEmpty(j);
+                for (int m = from; m > j; m--) {
+                    moveMin(m);
+                }
+                prefix++;
+            }
+        }
+    }
+    private int rank (int j){ // O(1), the nearest rank of percentile j, 0 for an empty tracker
+        if (this.size == 0) {
+            return 0;
+        }
+        return (int) Math.max(1, Math.min(this.size, (long) Math.ceil(this.percentiles[j] * this.size)));
+    }
+    private void moveMax (int j){ // O(log(n)), the maximum of bucket j becomes the minimum of bucket j + 1
+        MinMaxHeap.Handle<T> handle = this.buckets[j].maxHandle();
+        this.buckets[j].remove(handle);
+        this.buckets[j + 1].reinsert(handle);
+    }
+    private void moveMin (int j){ // O(log(n)), the minimum of bucket j becomes the maximum of bucket j - 1
+        MinMaxHeap.Handle<T> handle = this.buckets[j].minHandle();
+        this.buckets[j].remove(handle);
+        this.buckets[j - 1].reinsert(handle);
+    }
+    private int bucketFor (T element){ // O(k), the first bucket whose maximum is not smaller than element
+        for (int j = 0; j < this.buckets.length; j++) {
+            if (this.buckets[j].getSize() > 0 && element.compareTo(this.buckets[j].findMax()) <= 0) {
+                return j;
+            }
+        }
+        return this.buckets.length - 1; // bigger than everything, rebalancing moves it left as needed
+    }
+    private int bucketOf (MinMaxHeap.Handle<T> handle){ // O(k)
+        for (int j = 0; j < this.buckets.length; j++) {
+            if (this.buckets[j].owns(handle)) {
+                return j;
+            }
+        }
+        throw new IllegalArgumentException("Handle does not belong to an element of this tracker");
+    }
+    private int previousNonEmpty (int j){ // O(k), -1 if there is none
+        for (int i = j - 1; i >= 0; i--) {
+            if (this.buckets[i].getSize() > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    private int nextNonEmpty (int j){ // O(k), -1 if there is none
+        for (int i = j + 1; i < this.buckets.length; i++) {
+            if (this.buckets[i].getSize() > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
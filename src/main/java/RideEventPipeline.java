@@ -0,0 +1,234 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Feeds ride completions from many threads into a RiderRegistry that only one thread ever touches.
+//
+// Producers claim a sequence number with a CAS and write their event into a pre-allocated ring buffer, so
+// publishing never takes a lock and allocates nothing. A single consumer drains the published events in batches
+// and coalesces them: the first event of a rider in a batch takes the rider out of the heap, every event goes
+// through GottRider.rideCompleted, and at the end of the batch the riders go back in. A rider who completes r rides
+// in a batch costs r O(1) updates and one O(log(n)) remove and reinsert. The heap never holds a rider whose key
+// changed, so several riders can change in one batch without breaking its order.
+//
+// The registry belongs to the consumer thread. Other threads read the best and worst rider through extremes the
+// consumer publishes after every batch (one volatile read, as in SynchronizedMinMaxHeap).
+public class RideEventPipeline implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 4096; // events applied before the consumer frees their slots and publishes
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 50_000;
+    private static final long CLOSED = 1L << 62; // set in claimed by close, no producer can claim a sequence after it
+    private static final long UNWRITTEN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1); // close gives up on a claimed slot after this
+    private final RiderRegistry registry;
+    private final int mask; // capacity - 1, the capacity is a power of two
+    private final String[] names; // the event of sequence s is in slot s & mask
+    private final long[] stars;
+    private final AtomicLongArray published; // published.get(slot) is the sequence of the event in the slot, once written
+    private final AtomicLong claimed = new AtomicLong(); // the next sequence a producer can claim, or'ed with CLOSED after close
+    private volatile long consumed; // every sequence below this one is applied, and its slot is free
+    private final Map<String, MinMaxHeap.Handle<GottRider>> touched = new HashMap<>(); // riders of the current batch, out of the heap
+    private final AtomicBoolean applying = new AtomicBoolean(); // a thread is applying a batch
+    private volatile HeapExtremes<GottRider> extremes;
+    private volatile long processedEvents;
+    private volatile long droppedEvents; // events for riders that are not registered
+    private volatile long heapRepairs; // riders taken out of the heap and put back, one per rider and batch
+    private volatile boolean running;
+    private volatile Thread consumer;
+
+    // ###### CONSTRUCTORS ######
+
+    public RideEventPipeline(RiderRegistry registry) { // O(capacity)
+        this(registry, DEFAULT_CAPACITY);
+    }
+    public RideEventPipeline(RiderRegistry registry, int capacity) { // O(capacity), rounded up to a power of two
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.registry = registry;
+        this.mask = size - 1;
+        this.names = new String[size];
+        this.stars = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++) {
+            this.published.set(slot, -1);
+        }
+        this.extremes = registry.extremes();
+    }
+
+    // ###### PRODUCERS ######
+
+    public boolean tryPublish (String riderName, long starsGiven){ // O(1), lock free, false if the ring buffer is full
+        if (riderName == null) {
+            throw new IllegalArgumentException("Rider name cannot be null");
+        }
+        long sequence;
+        do {
+            sequence = this.claimed.get();
+            if ((sequence & CLOSED) != 0) {
+                throw new IllegalStateException("The pipeline is closed");
+            }
+            if (sequence - this.consumed > this.mask) { // every slot holds an event the consumer has not applied yet
+                return false;
+            }
+        } while (!this.claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & this.mask;
+        this.names[slot] = riderName;
+        this.stars[slot] = starsGiven;
+        this.published.set(slot, sequence); // the volatile write makes the event visible to the consumer
+        return true;
+    }
+    public void publish (String riderName, long starsGiven){ // O(1) unless the ring buffer is full, then waits for the consumer
+        int spins = 0;
+        while (!tryPublish(riderName, starsGiven)) {
+            if (++spins < SPINS_BEFORE_PARKING) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    // ###### CONSUMER ######
+
+    public synchronized void start (){ // O(1), starts the consumer thread
+        if (this.consumer != null) {
+            throw new IllegalStateException("The pipeline was already started");
+        }
+        if ((this.claimed.get() & CLOSED) != 0) {
+            throw new IllegalStateException("The pipeline is closed");
+        }
+        this.running = true;
+        this.consumer = new Thread(this::consume, "ride-event-consumer");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+    public int processBatch (){ // O(b + r*log(n)) for b events of r riders, drives the pipeline without start()
+        if (this.consumer != null) {
+            throw new IllegalStateException("The consumer thread applies the batches of a started pipeline");
+        }
+        return applyBatch();
+    }
+    @Override
+    public void close (){ // stops the consumer after it applied every event published before, producers cannot publish after
+        long end = this.claimed.getAndUpdate(sequence -> sequence | CLOSED) & ~CLOSED;
+        Thread thread;
+        synchronized (this) {
+            this.running = false;
+            thread = this.consumer;
+        }
+        if (thread != null) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // A producer writes its slot right after claiming it, but if its thread died in between, the slot is never
+        // written. The wait for it is bounded, instead of spinning forever.
+        long stalledSince = System.nanoTime();
+        while (this.consumed < end) {
+            if (applyBatch() > 0) {
+                stalledSince = System.nanoTime();
+            } else if (System.nanoTime() - stalledSince > UNWRITTEN_TIMEOUT_NANOS) {
+                throw new IllegalStateException((end - this.consumed) + " claimed events were never written");
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // ###### LOCK FREE READERS ######
+
+    public GottRider bestRider (){ // O(1), as of the last applied batch
+        HeapExtremes<GottRider> current = this.extremes;
+        if (current == null) {
+            throw new NoSuchElementException("No rider is registered");
+        }
+        return current.max;
+    }
+    public GottRider worstRider (){ // O(1), as of the last applied batch
+        HeapExtremes<GottRider> current = this.extremes;
+        if (current == null) {
+            throw new NoSuchElementException("No rider is registered");
+        }
+        return current.min;
+    }
+    public long getProcessedEvents (){ // O(1)
+        return this.processedEvents;
+    }
+    public long getDroppedEvents (){ // O(1)
+        return this.droppedEvents;
+    }
+    public long getHeapRepairs (){ // O(1), riders taken out and put back, at most getProcessedEvents(), lower the more events were coalesced
+        return this.heapRepairs;
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private int applyBatch (){ // applies up to MAX_BATCH published events, returns how many
+        if (!this.applying.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another thread is applying a batch");
+        }
+        try {
+            long sequence = this.consumed;
+            int count = 0;
+            while (count < MAX_BATCH && this.published.get((int) sequence & this.mask) == sequence) {
+                int slot = (int) sequence & this.mask;
+                String name = this.names[slot];
+                this.names[slot] = null;
+                MinMaxHeap.Handle<GottRider> handle = this.registry.findHandle(name);
+                if (handle == null) {
+                    this.droppedEvents++;
+                } else {
+                    if (this.touched.putIfAbsent(name, handle) == null) { // out of the heap before its key changes
+                        this.registry.detach(handle);
+                    }
+                    handle.getElement().rideCompleted(this.stars[slot]);
+                }
+                sequence++;
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            this.consumed = sequence; // the slots can be reused
+            for (MinMaxHeap.Handle<GottRider> handle : this.touched.values()) {
+                this.registry.reattach(handle);
+            }
+            this.heapRepairs += this.touched.size();
+            this.processedEvents += count;
+            this.touched.clear();
+            this.extremes = this.registry.extremes();
+            return count;
+        } finally {
+            this.applying.set(false);
+        }
+    }
+    private void consume (){ // the consumer thread, idles with a short park when there is nothing to apply
+        int idle = 0;
+        while (this.running) {
+            if (applyBatch() > 0) {
+                idle = 0;
+            } else if (++idle < SPINS_BEFORE_PARKING) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+}
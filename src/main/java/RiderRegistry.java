@@ -0,0 +1,72 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Every registered GottRider by name, together with the MinMaxHeap handle of the rider. A completed ride finds its
+// rider in O(1) and the heap repairs both orders through the handle in O(log(n)), without a scan or a rebuild.
+public class RiderRegistry {
+    private final MinMaxHeap<GottRider> riders = new MinMaxHeap<>();
+    private final Map<String, MinMaxHeap.Handle<GottRider>> byName = new HashMap<>();
+
+    // ###### METHODS ######
+
+    public void register (GottRider rider){ // O(log(n)), names are unique
+        if (rider == null) {
+            throw new IllegalArgumentException("Cannot register a null rider");
+        }
+        if (this.byName.containsKey(rider.getName())) {
+            throw new IllegalArgumentException("A rider named " + rider.getName() + " is already registered");
+        }
+        this.byName.put(rider.getName(), this.riders.insert(rider));
+    }
+    public GottRider unregister (String name){ // O(1) lookup plus O(log(n))
+        MinMaxHeap.Handle<GottRider> handle = this.byName.remove(name);
+        if (handle == null) {
+            throw new NoSuchElementException("No rider named " + name);
+        }
+        return this.riders.remove(handle);
+    }
+    public void completeRide (String name, long starsGiven){ // O(1) lookup plus O(log(n)), the average can move either way
+        MinMaxHeap.Handle<GottRider> handle = handleOf(name);
+        handle.getElement().rideCompleted(starsGiven);
+        this.riders.update(handle);
+    }
+    public GottRider find (String name){ // O(1), null if no rider has that name
+        MinMaxHeap.Handle<GottRider> handle = this.byName.get(name);
+        return handle == null ? null : handle.getElement();
+    }
+    public GottRider bestRider (){ // O(1), the highest average review
+        return this.riders.findMax();
+    }
+    public GottRider worstRider (){ // O(1), the lowest average review
+        return this.riders.findMin();
+    }
+    public int getSize (){ // O(1)
+        return this.riders.getSize();
+    }
+
+    // ###### PACKAGE PRIVATE ACCESS ######
+    // For RideEventPipeline, which takes the riders of a batch out of the heap, applies all their rides and puts them
+    // back. update could not do this, it repairs one changed element, not several at once.
+    MinMaxHeap.Handle<GottRider> findHandle (String name){ // O(1), null if no rider has that name
+        return this.byName.get(name);
+    }
+    void detach (MinMaxHeap.Handle<GottRider> handle){ // O(log(n)), the rider stays registered, its key may change now
+        this.riders.remove(handle);
+    }
+    void reattach (MinMaxHeap.Handle<GottRider> handle){ // O(log(n)), back into the heap, the handle stays the same
+        this.riders.reinsert(handle);
+    }
+    HeapExtremes<GottRider> extremes (){ // O(1), null while no rider is registered
+        return HeapExtremes.of(this.riders);
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private MinMaxHeap.Handle<GottRider> handleOf (String name){ // O(1)
+        MinMaxHeap.Handle<GottRider> handle = this.byName.get(name);
+        if (handle == null) {
+            throw new NoSuchElementException("No rider named " + name);
+        }
+        return handle;
+    }
+}
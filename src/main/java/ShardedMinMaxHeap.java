@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// A double ended priority queue split over independent SynchronizedMinMaxHeap shards. Every element goes to the
+// shard picked by its hashCode, so threads inserting different elements mostly lock different shards and
+// ingestion scales with the number of cores. The hashCode of an element must not change with its key (GottRider
+// keeps the identity hashCode), because update and remove find the shard of a handle by its element.
+//
+// findMin/findMax compare the extremes every shard published after its last change, without locking, and are
+// exact when no writer runs concurrently. topK/bottomK take the first k of every shard in parallel on the common
+// ForkJoinPool and merge them pairwise in bounded heaps of k elements.
+public class ShardedMinMaxHeap <T extends Comparable <T>>{
+    private static final int SEQUENTIAL_SHARDS = 2; // a fork join task merges at most this many shards itself
+    private final SynchronizedMinMaxHeap<T>[] shards;
+
+    // ###### CONSTRUCTORS ######
+
+    public ShardedMinMaxHeap() { // O(cores), one shard per available core
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    public ShardedMinMaxHeap(int shardCount) { // O(shardCount)
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.shards = (SynchronizedMinMaxHeap<T>[]) new SynchronizedMinMaxHeap[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new SynchronizedMinMaxHeap<>();
+        }
+    }
+
+    // ###### METHODS ######
+
+    public MinMaxHeap.Handle<T> insert (T element){ // O(log(n/shards)), only locks the element's shard
+        if (element == null) {
+            throw new IllegalArgumentException ("Cannot Insert null element to the heap");
+        }
+        return shardOf(element).insert(element);
+    }
+    public void update (MinMaxHeap.Handle<T> handle){ // O(log(n/shards))
+        shardOf(handle.getElement()).update(handle);
+    }
+    public T remove (MinMaxHeap.Handle<T> handle){ // O(log(n/shards))
+        return shardOf(handle.getElement()).remove(handle);
+    }
+    public T deleteMin (){ // O(shards + log(n/shards)), the minimum of the shard with the smallest published minimum
+        return deleteExtreme(true);
+    }
+    public T deleteMax (){ // O(shards + log(n/shards))
+        return deleteExtreme(false);
+    }
+    public T findMin (){ // O(shards), lock free
+        return findExtreme(true);
+    }
+    public T findMax (){ // O(shards), lock free
+        return findExtreme(false);
+    }
+    public int getSize (){ // O(shards), lock free
+        int size = 0;
+        for (SynchronizedMinMaxHeap<T> shard : this.shards) {
+            size += shard.getSize();
+        }
+        return size;
+    }
+    public List<T> topK (int k){ // O(shards*k*log(k)/cores), the k biggest elements, biggest first
+        return firstK(k, false);
+    }
+    public List<T> bottomK (int k){ // O(shards*k*log(k)/cores), the k smallest elements, smallest first
+        return firstK(k, true);
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    // Merges the first k elements of shards [from, to) into a bounded heap of k, splitting the range in halves.
+    private final class FirstKTask extends RecursiveTask<MinMaxHeap<T>> {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final boolean smallest;
+
+        private FirstKTask(int from, int to, int k, boolean smallest) {
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.smallest = smallest;
+        }
+        @Override
+        protected MinMaxHeap<T> compute() {
+            if (this.to - this.from <= SEQUENTIAL_SHARDS) {
+                MinMaxHeap<T> best = new MinMaxHeap<>(this.k, true);
+                for (int i = this.from; i < this.to; i++) {
+                    List<T> shardBest = this.smallest ? shards[i].bottomK(this.k) : shards[i].topK(this.k);
+                    offerAll(best, shardBest);
+                }
+                return best;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            FirstKTask left = new FirstKTask(this.from, middle, this.k, this.smallest);
+            left.fork();
+            MinMaxHeap<T> best = new FirstKTask(middle, this.to, this.k, this.smallest).compute();
+            offerAll(best, drain(left.join(), this.smallest));
+            return best;
+        }
+        private void offerAll(MinMaxHeap<T> best, List<T> elements) { // O(m*log(k)), keeps the k best of best and elements
+            for (T element : elements) { // best first, so once one is rejected all the others would be too
+                boolean kept = this.smallest ? best.offerBottom(element) : best.offerTop(element);
+                if (!kept) {
+                    break;
+                }
+            }
+        }
+    }
+    private List<T> firstK (int k, boolean smallest){
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        int bound = Math.min(k, getSize()); // no need for room beyond the current size
+        if (bound == 0) {
+            return new ArrayList<>();
+        }
+        return drain(ForkJoinPool.commonPool().invoke(new FirstKTask(0, this.shards.length, bound, smallest)), smallest);
+    }
+    private static <T extends Comparable<T>> List<T> drain (MinMaxHeap<T> heap, boolean smallest){ // O(m*log(m)), best first
+        List<T> elements = new ArrayList<>(heap.getSize());
+        while (heap.getSize() > 0) {
+            elements.add(smallest ? heap.deleteMin() : heap.deleteMax());
+        }
+        return elements;
+    }
+    private T deleteExtreme (boolean min){
+        while (true) {
+            Extreme<T> best = bestExtreme(min);
+            if (best == null) {
+                throw new NoSuchElementException("No element to be removed as the heap is empty.");
+            }
+            T element = min ? best.shard.pollMin() : best.shard.pollMax(); // null if another thread emptied the shard since it published
+            if (element != null) {
+                return element;
+            }
+        }
+    }
+    private T findExtreme (boolean min){ // O(shards), the best published extreme
+        Extreme<T> best = bestExtreme(min);
+        if (best == null) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return best.element;
+    }
+    // A shard together with the extreme it published, read once so the two always belong together.
+    private static final class Extreme <T extends Comparable <T>>{
+        private final SynchronizedMinMaxHeap<T> shard;
+        private final T element;
+
+        private Extreme(SynchronizedMinMaxHeap<T> shard, T element) {
+            this.shard = shard;
+            this.element = element;
+        }
+    }
+    private Extreme<T> bestExtreme (boolean min){ // O(shards), the shard with the best published extreme, null if all are empty
+        SynchronizedMinMaxHeap<T> best = null;
+        T bestElement = null;
+        for (SynchronizedMinMaxHeap<T> shard : this.shards) {
+            T candidate = extremeOf(shard.extremes(), min);
+            if (candidate != null && (bestElement == null || isBetter(candidate, bestElement, min))) {
+                best = shard;
+                bestElement = candidate;
+            }
+        }
+        return best == null ? null : new Extreme<>(best, bestElement);
+    }
+    private static <T> T extremeOf (HeapExtremes<T> extremes, boolean min){ // O(1), null for an empty shard
+        if (extremes == null) {
+            return null;
+        }
+        return min ? extremes.min : extremes.max;
+    }
+    private static <T extends Comparable<T>> boolean isBetter (T candidate, T best, boolean min){ // O(1)
+        return min ? candidate.compareTo(best) < 0 : candidate.compareTo(best) > 0;
+    }
+    private SynchronizedMinMaxHeap<T> shardOf (T element){ // O(1)
+        int hash = element.hashCode();
+        hash ^= hash >>> 16; // mix the high bits in, like HashMap does
+        return this.shards[Math.floorMod(hash, this.shards.length)];
+    }
+}
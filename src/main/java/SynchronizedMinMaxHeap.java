@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A MinMaxHeap that can be shared between threads. Writers take a lock, and after every change they publish the
+// new extremes as one immutable snapshot in a volatile field. findMin, findMax and getSize only read that field,
+// so they never block and their latency does not depend on how busy the writers are.
+public class SynchronizedMinMaxHeap <T extends Comparable <T>>{
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MinMaxHeap<T> heap;
+    private volatile HeapExtremes<T> extremes; // null while the heap is empty
+
+    // ###### CONSTRUCTORS ######
+
+    public SynchronizedMinMaxHeap() { // O(1)
+        this.heap = new MinMaxHeap<>();
+    }
+    public SynchronizedMinMaxHeap(int initialCapacity) { // O(1)
+        this.heap = new MinMaxHeap<>(initialCapacity);
+    }
+
+    // ###### WRITERS ######
+
+    public MinMaxHeap.Handle<T> insert (T element){ // O(log(n))
+        this.lock.lock();
+        try {
+            MinMaxHeap.Handle<T> handle = this.heap.insert(element);
+            publish();
+            return handle;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    public T deleteMin (){ // O(log(n))
+        this.lock.lock();
+        try {
+            T min = this.heap.deleteMin();
+            publish();
+            return min;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    public T deleteMax (){ // O(log(n))
+        this.lock.lock();
+        try {
+            T max = this.heap.deleteMax();
+            publish();
+            return max;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    public void update (MinMaxHeap.Handle<T> handle){ // O(log(n))
+        this.lock.lock();
+        try {
+            this.heap.update(handle);
+            publish();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    public T remove (MinMaxHeap.Handle<T> handle){ // O(log(n))
+        this.lock.lock();
+        try {
+            T element = this.heap.remove(handle);
+            publish();
+            return element;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // ###### LOCKED READERS ######
+
+    public List<T> topK (int k){ // O(k*log(k)), the k biggest elements, biggest first, the heap is not changed
+        return firstK(k, false);
+    }
+    public List<T> bottomK (int k){ // O(k*log(k)), the k smallest elements, smallest first
+        return firstK(k, true);
+    }
+
+    // ###### LOCK FREE READERS ######
+
+    public T findMin (){ // O(1), never blocks
+        HeapExtremes<T> current = this.extremes;
+        if (current == null) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return current.min;
+    }
+    public T findMax (){ // O(1), never blocks
+        HeapExtremes<T> current = this.extremes;
+        if (current == null) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return current.max;
+    }
+    public int getSize (){ // O(1), never blocks
+        HeapExtremes<T> current = this.extremes;
+        return current == null ? 0 : current.size;
+    }
+
+    // ###### PACKAGE PRIVATE ACCESS ######
+    // For ShardedMinMaxHeap, which must tell an empty shard apart without catching exceptions.
+    HeapExtremes<T> extremes (){ // O(1), never blocks, null while the heap is empty
+        return this.extremes;
+    }
+    T pollMin (){ // O(log(n)), null if the heap is empty
+        this.lock.lock();
+        try {
+            if (this.heap.getSize() == 0) {
+                return null;
+            }
+            T min = this.heap.deleteMin();
+            publish();
+            return min;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    T pollMax (){ // O(log(n)), null if the heap is empty
+        this.lock.lock();
+        try {
+            if (this.heap.getSize() == 0) {
+                return null;
+            }
+            T max = this.heap.deleteMax();
+            publish();
+            return max;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private List<T> firstK (int k, boolean ascending){
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        this.lock.lock();
+        try {
+            List<T> elements = new ArrayList<>(Math.min(k, this.heap.getSize()));
+            Iterator<T> sorted = ascending ? this.heap.ascendingIterator() : this.heap.descendingIterator();
+            while (elements.size() < k && sorted.hasNext()) {
+                elements.add(sorted.next());
+            }
+            return elements;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    private void publish (){ // O(1), called with the lock held after every change
+        this.extremes = HeapExtremes.of(this.heap);
+    }
+}
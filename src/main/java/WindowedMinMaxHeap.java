@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+
+// A MinMaxHeap of the elements seen in the last ttl time units (a sliding window). Every element expires ttl after
+// it was inserted or last touched, and expired elements are never returned.
+//
+// Expiry is lazy: findMin, findMax, deleteMin, deleteMax and getSize first evict whatever expired, and every insert
+// sweeps up to SWEEP_PER_INSERT expired entries so stale elements do not pile up between queries. The expiry times
+// sit in a LongMinMaxHeap whose ids are slots, and slots[slot] is the handle of the element in the main heap, so
+// eviction is O(log(n)) per expired element. A live slot has exactly one current entry there, whose time is
+// queuedAt[slot]: a touch only moves expiresAt[slot], and the current entry is re-keyed to that time when it comes up.
+//
+// An element that leaves the heap some other way (deleteMin, remove, ...) frees its slot right away, and the slot can
+// be reused. Its entry stays queued, and is recognised as stale when it comes up because the slot is free or its
+// current entry has another time. Once stale entries outnumber the live elements, the expiry heap is rebuilt from
+// the live slots, so the memory held follows the live window, not the history of inserts and touches.
+public class WindowedMinMaxHeap <T extends Comparable <T>>{
+    private static final int SWEEP_PER_INSERT = 2; // entries popped per insert, each one is evicted, re-keyed once or dropped as stale
+    private static final int MIN_STALE_ENTRIES = 16; // stale entries tolerated before a rebuild, however few elements are live
+    private final long ttl;
+    private final LongSupplier clock;
+    private final MinMaxHeap<T> heap = new MinMaxHeap<>();
+    private LongMinMaxHeap expiries = new LongMinMaxHeap(); // expiry time -> slot, the current entry of every live slot plus stale ones
+    private final Map<MinMaxHeap.Handle<T>, Integer> slotOf = new HashMap<>(); // handles compare by identity
+    private MinMaxHeap.Handle<T>[] slots = (MinMaxHeap.Handle<T>[]) new MinMaxHeap.Handle[16]; // null once the element left
+    private long[] expiresAt = new long[16]; // the current expiry time of every slot
+    private long[] queuedAt = new long[16]; // the time of the slot's current entry, at most expiresAt[slot]
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount; // slots handed out so far, free or not
+
+    // ###### CONSTRUCTORS ######
+
+    public WindowedMinMaxHeap(long ttlMillis) { // O(1), ttl in milliseconds of System.currentTimeMillis
+        this(ttlMillis, System::currentTimeMillis);
+    }
+    public WindowedMinMaxHeap(long ttl, LongSupplier clock) { // O(1), ttl in the units of clock, e.g. System::nanoTime
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    // ###### METHODS ######
+
+    public MinMaxHeap.Handle<T> insert (T element){ // O(log(n)) plus an amortized share of the sweep, expires ttl from now
+        long now = this.clock.getAsLong();
+        evictExpired(now, SWEEP_PER_INSERT);
+        return insertUntil(element, now + this.ttl);
+    }
+    public MinMaxHeap.Handle<T> insertUntil (T element, long expiresAt){ // O(log(n)), expires at the given clock time
+        MinMaxHeap.Handle<T> handle = this.heap.insert(element);
+        int slot = takeSlot();
+        this.slots[slot] = handle;
+        this.expiresAt[slot] = expiresAt;
+        this.queuedAt[slot] = expiresAt;
+        this.slotOf.put(handle, slot);
+        this.expiries.insertWithId(expiresAt, slot);
+        if (this.expiries.getSize() > 2 * this.slotOf.size() + MIN_STALE_ENTRIES) {
+            rebuildExpiries();
+        }
+        return handle;
+    }
+    public void touch (MinMaxHeap.Handle<T> handle){ // O(1), the element was active again, it now expires ttl from now
+        int slot = slotOf(handle);
+        long expiry = this.clock.getAsLong() + this.ttl;
+        if (expiry > this.expiresAt[slot]) { // the slot's entry comes up at the old time and is re-keyed then
+            this.expiresAt[slot] = expiry;
+        }
+    }
+    public void update (MinMaxHeap.Handle<T> handle){ // O(log(n)), after the element's key changed, does not touch it
+        slotOf(handle);
+        this.heap.update(handle);
+    }
+    public T remove (MinMaxHeap.Handle<T> handle){ // O(log(n))
+        release(slotOf(handle));
+        return this.heap.remove(handle);
+    }
+    public T deleteMin (){ // O(log(n)) plus the expired elements
+        evictExpired();
+        if (this.heap.getSize() == 0) {
+            throw new NoSuchElementException("No element to be removed as the heap is empty.");
+        }
+        release(this.slotOf.get(this.heap.minHandle()));
+        return this.heap.deleteMin();
+    }
+    public T deleteMax (){ // O(log(n)) plus the expired elements
+        evictExpired();
+        if (this.heap.getSize() == 0) {
+            throw new NoSuchElementException("No element to be removed as the heap is empty.");
+        }
+        release(this.slotOf.get(this.heap.maxHandle()));
+        return this.heap.deleteMax();
+    }
+    public T findMin (){ // O(1) plus the expired elements
+        evictExpired();
+        return this.heap.findMin();
+    }
+    public T findMax (){ // O(1) plus the expired elements
+        evictExpired();
+        return this.heap.findMax();
+    }
+    public int getSize (){ // O(1) plus the expired elements, the number of live elements
+        evictExpired();
+        return this.heap.getSize();
+    }
+    public int evictExpired (){ // O(e*log(n)) for e expired entries, returns how many elements were evicted
+        return evictExpired(this.clock.getAsLong(), Integer.MAX_VALUE);
+    }
+
+    // ###### HELPER FUNCTIONS ######
+    private int evictExpired (long now, int maxEntries){ // pops at most maxEntries expiry entries that are due
+        int evicted = 0;
+        for (int popped = 0; popped < maxEntries && this.expiries.getSize() > 0 && this.expiries.findMin() <= now; popped++) {
+            int slot = this.expiries.findMinId();
+            long expiry = this.expiries.deleteMin();
+            MinMaxHeap.Handle<T> handle = this.slots[slot];
+            if (handle == null || expiry != this.queuedAt[slot]) { // stale, its element left and the slot is free or reused
+                continue;
+            }
+            if (expiry < this.expiresAt[slot]) { // the element was touched since, its current entry moves to the new time
+                this.queuedAt[slot] = this.expiresAt[slot];
+                this.expiries.insertWithId(this.expiresAt[slot], slot);
+                continue;
+            }
+            this.heap.remove(handle);
+            release(slot);
+            evicted++;
+        }
+        return evicted;
+    }
+    private void release (int slot){ // O(1), the element left the heap, its slot can be reused right away
+        this.slotOf.remove(this.slots[slot]);
+        this.slots[slot] = null;
+        this.freeSlots[this.freeCount++] = slot;
+    }
+    private void rebuildExpiries (){ // O(n*log(n)), drops every stale entry, amortized over the more than n stale entries
+        LongMinMaxHeap rebuilt = new LongMinMaxHeap(Math.max(2 * this.slotOf.size(), 1));
+        for (int slot : this.slotOf.values()) {
+            rebuilt.insertWithId(this.queuedAt[slot], slot);
+        }
+        this.expiries = rebuilt;
+    }
+    private int slotOf (MinMaxHeap.Handle<T> handle){ // O(1)
+        Integer slot = this.slotOf.get(handle);
+        if (slot == null) {
+            throw new IllegalArgumentException("Handle does not belong to a live element of this heap");
+        }
+        return slot;
+    }
+    private int takeSlot (){ // O(1) amortized
+        if (this.freeCount > 0) {
+            return this.freeSlots[--this.freeCount];
+        }
+        if (this.slotCount == this.slots.length) {
+            this.slots = Arrays.copyOf(this.slots, 2 * this.slotCount);
+            this.expiresAt = Arrays.copyOf(this.expiresAt, 2 * this.slotCount);
+            this.queuedAt = Arrays.copyOf(this.queuedAt, 2 * this.slotCount);
+            this.freeSlots = Arrays.copyOf(this.freeSlots, 2 * this.slotCount);
+        }
+        return this.slotCount++;
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentMinMaxHeapTest {
+
+    static final int THREADS = 4;
+    static final int ELEMENTS_PER_THREAD = 5000;
+
+    @Test
+    public void emptyHeapThrowsException() {
+        ConcurrentMinMaxHeap<Integer> heap = new ConcurrentMinMaxHeap<>(4);
+        assertThrows(NoSuchElementException.class, heap::deleteMin);
+        assertThrows(NoSuchElementException.class, heap::deleteMaxExact);
+        assertThrows(NoSuchElementException.class, heap::findMax);
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMinMaxHeap<Integer>(0));
+    }
+    @Test
+    public void exactDeletesAreSortedWithoutContention() {
+        ConcurrentMinMaxHeap<Integer> heap = new ConcurrentMinMaxHeap<>(8);
+        for (int i = 0; i < 100; i++) {
+            heap.insert((i * 37) % 100);
+        }
+        assertEquals((Integer) 0, heap.findMin());
+        assertEquals((Integer) 99, heap.findMax());
+        for (int i = 0; i < 50; i++) {
+            assertEquals((Integer) i, heap.deleteMinExact());
+            assertEquals((Integer) (99 - i), heap.deleteMaxExact());
+        }
+        assertEquals(0, heap.getSize());
+    }
+    @Test
+    public void concurrentInsertsAndRelaxedDeletesLoseNothing() throws Exception {
+        ConcurrentMinMaxHeap<Integer> heap = new ConcurrentMinMaxHeap<>(THREADS * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> inserts = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * ELEMENTS_PER_THREAD;
+                inserts.add(pool.submit(() -> {
+                    for (int i = 0; i < ELEMENTS_PER_THREAD; i++) {
+                        heap.insert(offset + i);
+                    }
+                }));
+            }
+            for (Future<?> future : inserts) {
+                future.get();
+            }
+            assertEquals(THREADS * ELEMENTS_PER_THREAD, heap.getSize());
+            List<Future<List<Integer>>> deletes = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                boolean fromTheTop = t % 2 == 0;
+                deletes.add(pool.submit(() -> {
+                    List<Integer> removed = new ArrayList<>();
+                    for (int i = 0; i < ELEMENTS_PER_THREAD; i++) {
+                        removed.add(fromTheTop ? heap.deleteMax() : heap.deleteMin());
+                    }
+                    return removed;
+                }));
+            }
+            Set<Integer> removed = new HashSet<>();
+            for (Future<List<Integer>> future : deletes) {
+                removed.addAll(future.get());
+            }
+            assertEquals(THREADS * ELEMENTS_PER_THREAD, removed.size()); // every element exactly once
+            assertEquals(0, heap.getSize());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DoubleMinMaxHeapTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final double ACCEPTABLE_ERROR = 0.0;
+
+    @Test
+    public void emptyHeapThrowsExceptionOnDeletion() {
+        DoubleMinMaxHeap heap = new DoubleMinMaxHeap();
+        assertThrows(NoSuchElementException.class, heap::deleteMin);
+        assertThrows(NoSuchElementException.class, heap::deleteMax);
+    }
+    @Test
+    public void insertNaNException() {
+        DoubleMinMaxHeap heap = new DoubleMinMaxHeap();
+        assertThrows(IllegalArgumentException.class, () -> heap.insert(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new DoubleMinMaxHeap(new double[] {1.0, Double.NaN}));
+    }
+    @Test
+    public void riderAveragesWithIds() {
+        GottRider[] riders = {
+                new GottRider("Low", 100L, 0.0),
+                new GottRider("Med", 10L, 2.5),
+                new GottRider("Hai", 1_000L, 4.99)
+        };
+        DoubleMinMaxHeap heap = new DoubleMinMaxHeap(riders.length);
+        for (int id = 0; id < riders.length; id++) {
+            heap.insertWithId(riders[id].getAverageReviewGiven(), id);
+        }
+        assertEquals("Low", riders[heap.findMinId()].getName());
+        assertEquals("Hai", riders[heap.findMaxId()].getName());
+        assertEquals(4.99, heap.deleteMax(), ACCEPTABLE_ERROR);
+        assertEquals("Med", riders[heap.findMaxId()].getName());
+    }
+    @Test
+    public void mixedOperationsMatchSortedReference() {
+        DoubleMinMaxHeap heap = new DoubleMinMaxHeap(1);
+        List<Double> reference = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 10000; i++) {
+            int operation = random.nextInt(4);
+            if (operation < 2 || reference.isEmpty()) {
+                double key = random.nextInt(50) / 10.0;
+                heap.insert(key);
+                reference.add(key);
+            } else if (operation == 2) {
+                assertEquals(Collections.min(reference), heap.deleteMin(), ACCEPTABLE_ERROR);
+                reference.remove(Collections.min(reference));
+            } else {
+                assertEquals(Collections.max(reference), heap.deleteMax(), ACCEPTABLE_ERROR);
+                reference.remove(Collections.max(reference));
+            }
+            assertEquals(reference.size(), heap.getSize());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DurableMinMaxHeapTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final double ACCEPTABLE_ERROR = 0.0;
+
+    @Test
+    public void committedOperationsSurviveACrash() throws IOException {
+        Path directory = Files.createTempDirectory("durable-heap");
+        try {
+            DurableMinMaxHeap<GottRider> heap = new DurableMinMaxHeap<>(directory, new GottRiderCodec(), 1000, 1000);
+            MinMaxHeap.Handle<GottRider> jack = heap.insert(new GottRider("Jack", 1L, 1.0));
+            heap.insert(new GottRider("Low", 1L, 0.5));
+            heap.insert(new GottRider("Hai", 1L, 4.5));
+            MinMaxHeap.Handle<GottRider> med = heap.insert(new GottRider("Med", 1L, 3.0));
+            heap.update(jack, rider -> rider.rideCompleted(5L)); // 3.0
+            heap.update(jack, rider -> rider.rideCompleted(5L)); // 3.67
+            heap.remove(med);
+            assertEquals("Low", heap.deleteMin().getName());
+            heap.commit();
+            heap.insert(new GottRider("Lost", 1L, 5.0)); // never committed, the "crash" happens here
+
+            DurableMinMaxHeap<GottRider> recovered = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            assertEquals(2, recovered.getSize());
+            assertEquals("Hai", recovered.findMax().getName());
+            GottRider recoveredJack = recovered.findMin();
+            assertEquals("Jack", recoveredJack.getName());
+            assertEquals(11.0 / 3, recoveredJack.getAverageReviewGiven(), ACCEPTABLE_ERROR);
+            recovered.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+    @Test
+    public void recoveryMatchesTheLiveHeapAcrossCheckpoints() throws IOException {
+        Path directory = Files.createTempDirectory("durable-heap");
+        Path copy = null;
+        try {
+            DurableMinMaxHeap<GottRider> heap = new DurableMinMaxHeap<>(directory, new GottRiderCodec(), 16, 100);
+            List<MinMaxHeap.Handle<GottRider>> handles = new ArrayList<>();
+            Random random = new Random(FIXED_RANDOMNESS_SEED);
+            for (int i = 0; i < 1000; i++) {
+                int operation = random.nextInt(6);
+                if (operation < 3 || heap.getSize() == 0) {
+                    handles.add(heap.insert(new GottRider("Rider " + i, 1L, (double) random.nextInt(50) / 10)));
+                } else if (operation == 3) {
+                    heap.deleteMin();
+                } else if (operation == 4) {
+                    heap.deleteMax();
+                } else {
+                    MinMaxHeap.Handle<GottRider> handle = handles.get(random.nextInt(handles.size()));
+                    if (handle.isValid()) {
+                        long stars = random.nextInt(6);
+                        heap.update(handle, rider -> rider.rideCompleted(stars));
+                    }
+                }
+            }
+            heap.commit();
+            try (Stream<Path> files = Files.list(directory)) {
+                assertTrue(files.count() <= 2); // older generations were cleaned up
+            }
+            copy = Files.createTempDirectory("durable-heap-copy"); // recover a copy, the live heap keeps logging to directory
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, copy.resolve(file.getFileName()));
+                }
+            }
+            DurableMinMaxHeap<GottRider> recovered = new DurableMinMaxHeap<>(copy, new GottRiderCodec());
+            assertEquals(heap.getSize(), recovered.getSize());
+            while (heap.getSize() > 0) {
+                assertEquals(heap.deleteMin().getName(), recovered.deleteMin().getName());
+            }
+            recovered.close();
+            heap.close();
+        } finally {
+            deleteDirectory(directory);
+            if (copy != null) {
+                deleteDirectory(copy);
+            }
+        }
+    }
+    @Test
+    public void recoveredElementsCanBeUpdatedAndRemoved() throws IOException {
+        Path directory = Files.createTempDirectory("durable-heap");
+        try {
+            DurableMinMaxHeap<GottRider> heap = new DurableMinMaxHeap<>(directory, new GottRiderCodec(), 1, 3);
+            heap.insert(new GottRider("Jack", 1L, 1.0));
+            heap.insert(new GottRider("Low", 1L, 0.5));
+            heap.insert(new GottRider("Hai", 1L, 4.5)); // checkpoint, these three come back from snapshot-1
+            heap.insert(new GottRider("Med", 1L, 3.0)); // and this one from log-1
+            heap.close();
+
+            DurableMinMaxHeap<GottRider> recovered = new DurableMinMaxHeap<>(directory, new GottRiderCodec(), 1, 1000);
+            Map<String, MinMaxHeap.Handle<GottRider>> byName = new HashMap<>();
+            for (MinMaxHeap.Handle<GottRider> handle : recovered.handles()) {
+                byName.put(handle.getElement().getName(), handle);
+            }
+            assertEquals(new HashSet<>(Arrays.asList("Jack", "Low", "Hai", "Med")), byName.keySet());
+            recovered.update(byName.get("Jack"), rider -> rider.rideCompleted(5L)); // 3.0
+            recovered.update(byName.get("Jack"), rider -> rider.rideCompleted(5L)); // 3.67
+            assertEquals("Med", recovered.remove(byName.get("Med")).getName());
+            recovered.update(byName.get("Low"), rider -> rider.rideCompleted(5L)); // 2.75
+            recovered.close();
+
+            DurableMinMaxHeap<GottRider> again = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            assertEquals(3, again.getSize());
+            assertEquals("Hai", again.deleteMax().getName());
+            GottRider jack = again.deleteMax();
+            assertEquals("Jack", jack.getName());
+            assertEquals(11.0 / 3, jack.getAverageReviewGiven(), ACCEPTABLE_ERROR);
+            assertEquals(2L, again.findMin().getPreviousRides());
+            assertEquals("Low", again.findMin().getName());
+            again.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+    @Test
+    public void aFailedWriteRejectsLaterOperations() throws IOException {
+        Path directory = Files.createTempDirectory("durable-heap");
+        try {
+            DurableMinMaxHeap<GottRider> heap = new DurableMinMaxHeap<>(directory, new GottRiderCodec(), 2, 1000);
+            heap.insert(new GottRider("Kept", 1L, 2.0));
+            heap.insert(new GottRider("Also Kept", 1L, 3.0)); // committed
+            heap.close(); // the log channel is closed, so the next commit fails
+            MinMaxHeap.Handle<GottRider> lost = heap.insert(new GottRider("Pending", 1L, 4.0));
+            assertThrows(IOException.class, () -> heap.insert(new GottRider("Failing", 1L, 1.0)));
+            assertThrows(IllegalStateException.class, () -> heap.update(lost, rider -> rider.rideCompleted(5L)));
+            assertThrows(IllegalStateException.class, heap::deleteMin);
+            assertThrows(IllegalStateException.class, heap::commit);
+            heap.close();
+            DurableMinMaxHeap<GottRider> recovered = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            assertEquals(2, recovered.getSize());
+            assertEquals("Also Kept", recovered.findMax().getName());
+            recovered.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+    @Test
+    public void tornTailIsIgnored() throws IOException {
+        Path directory = Files.createTempDirectory("durable-heap");
+        try {
+            DurableMinMaxHeap<GottRider> heap = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            heap.insert(new GottRider("Kept", 1L, 2.0));
+            heap.close();
+            Files.write(directory.resolve("log-0"), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+            DurableMinMaxHeap<GottRider> recovered = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            assertEquals(1, recovered.getSize());
+            recovered.insert(new GottRider("Appended", 1L, 3.0)); // goes after the last good record
+            recovered.close();
+            DurableMinMaxHeap<GottRider> again = new DurableMinMaxHeap<>(directory, new GottRiderCodec());
+            assertEquals(2, again.getSize());
+            assertEquals("Appended", again.findMax().getName());
+            again.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+    private void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LongMinMaxHeapTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final int LARGE_HEAP_SIZE = 100;
+
+    @Test
+    public void emptyHeapThrowsExceptionOnDeletion() {
+        LongMinMaxHeap heap = new LongMinMaxHeap();
+        assertThrows(NoSuchElementException.class, heap::deleteMin);
+        assertThrows(NoSuchElementException.class, heap::deleteMax);
+        assertThrows(NoSuchElementException.class, heap::findMinId);
+    }
+    @Test
+    public void zeroCapacityHeapThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new LongMinMaxHeap(0));
+    }
+    @Test
+    public void repeatedDeleteMinAndDeleteMaxConstructedFromArray() {
+        long[] keys = new long[LARGE_HEAP_SIZE];
+        for (int i = 0; i < LARGE_HEAP_SIZE; i++) {
+            keys[i] = (i * 37L) % LARGE_HEAP_SIZE - 50;
+        }
+        LongMinMaxHeap heap = new LongMinMaxHeap(keys);
+        long lower = -50;
+        long upper = 49;
+        while (heap.getSize() > 0) {
+            assertEquals(lower++, heap.deleteMin());
+            if (heap.getSize() > 0) {
+                assertEquals(upper--, heap.deleteMax());
+            }
+        }
+    }
+    @Test
+    public void idsTravelWithTheirKeys() {
+        LongMinMaxHeap heap = new LongMinMaxHeap(1); // also resizing
+        for (int i = 0; i < LARGE_HEAP_SIZE; i++) {
+            heap.insertWithId(Long.MAX_VALUE - i, i);
+        }
+        assertEquals(LARGE_HEAP_SIZE - 1, heap.findMinId());
+        assertEquals(0, heap.findMaxId());
+        heap.deleteMin();
+        heap.deleteMax();
+        assertEquals(Long.MAX_VALUE - (LARGE_HEAP_SIZE - 2), heap.findMin());
+        assertEquals(LARGE_HEAP_SIZE - 2, heap.findMinId());
+        assertEquals(1, heap.findMaxId());
+    }
+    @Test
+    public void mixedOperationsMatchSortedReference() {
+        LongMinMaxHeap heap = new LongMinMaxHeap(1);
+        List<Long> reference = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 10000; i++) {
+            int operation = random.nextInt(4);
+            if (operation < 2 || reference.isEmpty()) {
+                long key = random.nextLong();
+                heap.insert(key);
+                reference.add(key);
+            } else if (operation == 2) {
+                assertEquals((long) Collections.min(reference), heap.deleteMin());
+                reference.remove(Collections.min(reference));
+            } else {
+                assertEquals((long) Collections.max(reference), heap.deleteMax());
+                reference.remove(Collections.max(reference));
+            }
+            assertEquals(reference.size(), heap.getSize());
+        }
+    }
+}
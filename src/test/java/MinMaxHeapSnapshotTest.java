@@ -0,0 +1,146 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MinMaxHeapSnapshotTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final double ACCEPTABLE_ERROR = 0.0;
+
+    static final HeapElementCodec<Integer> INTEGER_CODEC = new HeapElementCodec<>() {
+        public int encodedSize(Integer element) {
+            return Integer.BYTES;
+        }
+        public void encode(Integer element, ByteBuffer buffer) {
+            buffer.putInt(element);
+        }
+        public Integer decode(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    @Test
+    public void restoredHeapKeepsLayoutAndOrder() throws IOException {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1, 4);
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 5000; i++) {
+            heap.insert(random.nextInt(1000));
+        }
+        for (int i = 0; i < 100; i++) {
+            heap.deleteMin();
+            heap.deleteMax();
+        }
+        Path file = Files.createTempFile("heap", ".snapshot");
+        try {
+            MinMaxHeapSnapshot.write(heap, INTEGER_CODEC, file);
+            MinMaxHeap<Integer> restored = MinMaxHeapSnapshot.read(file, INTEGER_CODEC);
+            assertEquals(heap.getSize(), restored.getSize());
+            assertEquals(4, restored.getArity());
+            assertArrayEquals(Arrays.copyOfRange(heap.minToMaxArray(), 1, heap.getSize() + 1),
+                    Arrays.copyOfRange(restored.minToMaxArray(), 1, restored.getSize() + 1));
+            restored.insert(-1); // the restored heap keeps working
+            assertEquals((Integer) (-1), restored.deleteMin());
+            while (heap.getSize() > 0) {
+                assertEquals(heap.deleteMin(), restored.deleteMin());
+                if (heap.getSize() > 0) {
+                    assertEquals(heap.deleteMax(), restored.deleteMax());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    @Test
+    public void heapsWithAnotherOrderAreRejected() throws IOException {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(Comparator.<Integer>reverseOrder());
+        heap.insert(1);
+        Path file = Files.createTempFile("heap", ".snapshot");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> MinMaxHeapSnapshot.write(heap, INTEGER_CODEC, file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    @Test
+    public void ridersAreRestoredExactly() throws IOException {
+        GottRider rider = new GottRider("Jack Ryder", 2L, 4.0);
+        rider.rideCompleted(1L);
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>(4, true);
+        heap.insert(rider);
+        heap.insert(new GottRider("Sung Jin-Woo", 10L, 4.5));
+        heap.insert(new GottRider("", 0L, 0.0));
+        Path file = Files.createTempFile("riders", ".snapshot");
+        try {
+            MinMaxHeapSnapshot.write(heap, new GottRiderCodec(), file);
+            MinMaxHeap<GottRider> restored = MinMaxHeapSnapshot.read(file, new GottRiderCodec());
+            assertTrue(restored.isBounded());
+            assertEquals("Sung Jin-Woo", restored.findMax().getName());
+            assertEquals("", restored.deleteMin().getName());
+            GottRider restoredRider = restored.deleteMin();
+            assertEquals("Jack Ryder", restoredRider.getName());
+            restoredRider.rideCompleted(5L);
+            rider.rideCompleted(5L);
+            assertEquals(rider.getAverageReviewGiven(), restoredRider.getAverageReviewGiven(), ACCEPTABLE_ERROR);
+            assertEquals(4, restoredRider.getPreviousRides());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    @Test
+    public void emptyHeapAndForeignFile() throws IOException {
+        Path file = Files.createTempFile("empty", ".snapshot");
+        try {
+            MinMaxHeapSnapshot.write(new MinMaxHeap<>(new Integer[0]), INTEGER_CODEC, file);
+            MinMaxHeap<Integer> restored = MinMaxHeapSnapshot.read(file, INTEGER_CODEC);
+            assertEquals(0, restored.getSize());
+            restored.insert(3);
+            assertEquals((Integer) 3, restored.findMax());
+            Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+            assertThrows(IOException.class, () -> MinMaxHeapSnapshot.read(file, INTEGER_CODEC));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    @Test
+    public void damagedFilesAreRejected() throws IOException {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1, 2);
+        for (int i = 0; i < 10; i++) {
+            heap.insert(i * 7 % 10);
+        }
+        Path file = Files.createTempFile("heap", ".snapshot");
+        Path damaged = Files.createTempFile("damaged", ".snapshot");
+        try {
+            MinMaxHeapSnapshot.write(heap, INTEGER_CODEC, file);
+            byte[] good = Files.readAllBytes(file);
+            // header: magic at 0, version at 4, size at 8, capacity at 12, bounded at 16, arity at 17, then minToMax at 21
+            int[][] damages = {
+                    {17, 1}, // arity below 2
+                    {8, -1}, // negative size
+                    {8, 1000}, // size above the capacity
+                    {21, 11}, // minToMax[1] outside [1, size]
+                    {21, 0},
+                    {25, ByteBuffer.wrap(good).order(ByteOrder.LITTLE_ENDIAN).getInt(21)}, // minToMax[2] == minToMax[1]
+            };
+            for (int[] damage : damages) {
+                byte[] bytes = good.clone();
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(damage[0], damage[1]);
+                Files.write(damaged, bytes);
+                assertThrows(IOException.class, () -> MinMaxHeapSnapshot.read(damaged, INTEGER_CODEC));
+            }
+            Files.write(damaged, Arrays.copyOf(good, 40)); // truncated in the middle of the mappings
+            assertThrows(IOException.class, () -> MinMaxHeapSnapshot.read(damaged, INTEGER_CODEC));
+            Files.write(damaged, good);
+            assertEquals(10, MinMaxHeapSnapshot.read(damaged, INTEGER_CODEC).getSize());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(damaged);
+        }
+    }
+}
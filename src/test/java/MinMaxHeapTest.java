@@ -5,6 +5,7 @@ import java.lang.reflect.Field;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -342,6 +343,568 @@ public class MinMaxHeapTest {
         assertThrows(NoSuchElementException.class, heap::deleteMax);
         assertThrows(NoSuchElementException.class, heap::deleteMax);
     }
+    @Test
+    public void updateRepositionsRiderAfterRideCompleted() {
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>();
+        GottRider low = new GottRider("Low", 1L, 1.0);
+        GottRider med = new GottRider("Med", 1L, 3.0);
+        GottRider hai = new GottRider("Hai", 1L, 4.0);
+        MinMaxHeap.Handle<GottRider> lowHandle = heap.insert(low);
+        heap.insert(med);
+        MinMaxHeap.Handle<GottRider> haiHandle = heap.insert(hai);
+        low.rideCompleted(5L); // 3.0
+        low.rideCompleted(5L); // 3.67
+        heap.update(lowHandle);
+        hai.rideCompleted(0L); // 2.0
+        heap.update(haiHandle);
+        assertSame(hai, heap.findMin());
+        assertSame(low, heap.findMax());
+        assertSame(low, lowHandle.getElement());
+    }
+    @Test
+    public void increaseAndDecreaseKeyKeepBothOrders() {
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>(1); // also resizing
+        List<MinMaxHeap.Handle<GottRider>> handles = new ArrayList<>();
+        for (int i = 0; i < LARGE_HEAP_SIZE; i++) {
+            handles.add(heap.insert(new GottRider("Rider " + i, 1L, (double) (i % 5))));
+        }
+        MinMaxHeap.Handle<GottRider> handle = handles.get(42);
+        handle.getElement().rideCompleted(1000L);
+        heap.increaseKey(handle);
+        assertSame(handle.getElement(), heap.findMax());
+        handle = handles.get(17);
+        handle.getElement().rideCompleted(-1000L);
+        heap.decreaseKey(handle);
+        assertSame(handle.getElement(), heap.findMin());
+        assertHeapConsistent(heap);
+    }
+    @Test
+    public void removeByHandleMatchesSortedReference() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1);
+        List<MinMaxHeap.Handle<Integer>> handles = new ArrayList<>();
+        List<Integer> reference = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(5);
+            if (operation < 2 || reference.isEmpty()) {
+                Integer element = random.nextInt(300);
+                handles.add(heap.insert(element));
+                reference.add(element);
+            } else if (operation == 2) {
+                assertEquals(Collections.min(reference), heap.deleteMin());
+                reference.remove(Collections.min(reference));
+            } else if (operation == 3) {
+                assertEquals(Collections.max(reference), heap.deleteMax());
+                reference.remove(Collections.max(reference));
+            } else {
+                MinMaxHeap.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+                if (handle.isValid()) {
+                    assertSame(handle.getElement(), heap.remove(handle));
+                    reference.remove(handle.getElement());
+                    assertFalse(handle.isValid());
+                }
+            }
+            assertEquals(reference.size(), heap.getSize());
+            assertHeapConsistent(heap);
+        }
+    }
+    @Test
+    public void removedHandleCannotBeUsed() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        MinMaxHeap.Handle<Integer> handle = heap.insert(1);
+        heap.insert(2);
+        heap.deleteMin();
+        assertFalse(handle.isValid());
+        assertThrows(IllegalArgumentException.class, () -> heap.remove(handle));
+        assertThrows(IllegalArgumentException.class, () -> new MinMaxHeap<Integer>().update(heap.insert(3)));
+    }
+    @Test
+    public void boundedHeapKeepsTopAndBottomK() {
+        int k = 10;
+        MinMaxHeap<Integer> top = new MinMaxHeap<>(k, true);
+        MinMaxHeap<Integer> bottom = new MinMaxHeap<>(k, true);
+        List<Integer> shuffledElements = makeShuffledElementList();
+        for (Integer element : shuffledElements) {
+            top.offerTop(element);
+            bottom.offerBottom(element);
+            assertTrue(top.getSize() <= k);
+            assertTrue(bottom.getSize() <= k);
+        }
+        assertTrue(top.isFull());
+        assertEquals((Integer) (LARGE_HEAP_SIZE - k), top.findMin());
+        assertEquals((Integer) (LARGE_HEAP_SIZE - 1), top.findMax());
+        assertEquals((Integer) 0, bottom.findMin());
+        assertEquals((Integer) (k - 1), bottom.findMax());
+        assertHeapConsistent(top);
+        assertHeapConsistent(bottom);
+        List<Integer> repeatedMinimums = repeatedDeleteMin(top);
+        assertEquals(IntStream.range(LARGE_HEAP_SIZE - k, LARGE_HEAP_SIZE).boxed().collect(Collectors.toList()), repeatedMinimums);
+    }
+    @Test
+    public void fullBoundedHeapRejectsInsertAndWeakOffers() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(2, true);
+        heap.insert(5);
+        heap.insert(10);
+        assertThrows(IllegalStateException.class, () -> heap.insert(7));
+        assertFalse(heap.offerTop(5));
+        assertFalse(heap.offerBottom(10));
+        assertTrue(heap.offerTop(7));
+        assertEquals((Integer) 7, heap.findMin());
+        assertEquals(2, heap.getSize());
+    }
+    @Test
+    public void insertAllSmallAndLargeBatches() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1);
+        List<Integer> shuffledElements = makeShuffledElementList();
+        MinMaxHeap.Handle<Integer> handle = heap.insert(-1);
+        heap.insertAll(shuffledElements.subList(0, 60)); // large batch, rebuilt bottom up
+        heap.insertAll(shuffledElements.subList(60, 62)); // small batch, percolated one by one
+        heap.insertAll(shuffledElements.subList(62, LARGE_HEAP_SIZE));
+        assertEquals(LARGE_HEAP_SIZE + 1, heap.getSize());
+        assertHeapConsistent(heap);
+        assertSame(handle.getElement(), heap.remove(handle));
+        List<Integer> repeatedMinimums = repeatedDeleteMin(heap);
+        assertEquals(IntStream.range(0, LARGE_HEAP_SIZE).boxed().collect(Collectors.toList()), repeatedMinimums);
+    }
+    @Test
+    public void insertAllRejectsNullWithoutChangingTheHeap() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        heap.insert(1);
+        assertThrows(IllegalArgumentException.class, () -> heap.insertAll(Arrays.asList(2, null, 3)));
+        assertEquals(1, heap.getSize());
+        assertThrows(IllegalStateException.class, () -> new MinMaxHeap<Integer>(2, true).insertAll(Arrays.asList(1, 2, 3)));
+    }
+    @Test
+    public void meldMovesElementsAndHandles() {
+        List<Integer> shuffledElements = makeShuffledElementList();
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(shuffledElements.subList(0, 50).toArray(Integer[]::new));
+        MinMaxHeap<Integer> other = new MinMaxHeap<>();
+        List<MinMaxHeap.Handle<Integer>> otherHandles = new ArrayList<>();
+        for (Integer element : shuffledElements.subList(50, LARGE_HEAP_SIZE)) {
+            otherHandles.add(other.insert(element));
+        }
+        heap.meld(other);
+        assertEquals(0, other.getSize());
+        assertEquals(LARGE_HEAP_SIZE, heap.getSize());
+        assertHeapConsistent(heap);
+        MinMaxHeap.Handle<Integer> handle = otherHandles.get(7);
+        assertSame(handle.getElement(), heap.remove(handle));
+        assertThrows(IllegalArgumentException.class, () -> heap.meld(heap));
+        List<Integer> repeatedMaximums = repeatedDeleteMax(heap);
+        Collections.reverse(repeatedMaximums);
+        assertTrue(isSortedAscending(repeatedMaximums));
+        assertEquals(LARGE_HEAP_SIZE - 1, repeatedMaximums.size());
+    }
+    @Test
+    public void mergeLeavesTheShardsUntouched() {
+        List<Integer> shuffledElements = makeShuffledElementList();
+        MinMaxHeap<Integer> first = new MinMaxHeap<>(shuffledElements.subList(0, 30).toArray(Integer[]::new));
+        MinMaxHeap<Integer> second = new MinMaxHeap<>(shuffledElements.subList(30, LARGE_HEAP_SIZE).toArray(Integer[]::new));
+        MinMaxHeap<Integer> merged = MinMaxHeap.merge(first, second, new MinMaxHeap<>());
+        assertEquals(30, first.getSize());
+        assertEquals(70, second.getSize());
+        assertHeapConsistent(merged);
+        assertEquals(IntStream.range(0, LARGE_HEAP_SIZE).boxed().collect(Collectors.toList()), repeatedDeleteMin(merged));
+        assertEquals(0, MinMaxHeap.<Integer>merge().getSize());
+    }
+    @Test
+    public void metricsCountOnlyWhileEnabled() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1);
+        heap.insert(0);
+        assertNull(heap.getMetrics());
+        HeapMetrics metrics = heap.enableMetrics();
+        for (int i = 1; i <= 8; i++) { // ascending, so every insert goes all the way up the maxHeap
+            heap.insert(i);
+        }
+        assertEquals(0, metrics.getMinSwaps());
+        assertEquals(1 + 1 + 2 + 2 + 2 + 2 + 3 + 3, metrics.getMaxSwaps());
+        assertEquals(3, metrics.getResizes()); // capacity 2 -> 4 -> 8 -> 16
+        long[] insertDepths = metrics.getDepthHistogram(HeapMetrics.Operation.INSERT);
+        assertEquals(2, insertDepths[1]);
+        assertEquals(4, insertDepths[2]);
+        assertEquals(2, insertDepths[3]);
+        heap.deleteMin();
+        assertTrue(metrics.getComparisons() > 0);
+        assertEquals(1, Arrays.stream(metrics.getDepthHistogram(HeapMetrics.Operation.DELETE_MIN)).sum());
+        assertTrue(metrics.getBytesCopied() > 0);
+        heap.disableMetrics();
+        long comparisons = metrics.getComparisons();
+        heap.deleteMax();
+        assertEquals(comparisons, metrics.getComparisons());
+        assertNull(heap.getMetrics());
+    }
+    @Test
+    public void metricsCountTheCachedKeysOfResizes() {
+        MinMaxHeap<Long> plain = new MinMaxHeap<>();
+        MinMaxHeap<Long> keyed = MinMaxHeap.comparingLong(Long::longValue);
+        HeapMetrics plainMetrics = plain.enableMetrics();
+        HeapMetrics keyedMetrics = keyed.enableMetrics();
+        for (long i = 0; i < 500; i++) {
+            plain.insert(i);
+            keyed.insert(i);
+        }
+        assertTrue(keyedMetrics.getResizes() > 0);
+        assertEquals(plainMetrics.getResizes(), keyedMetrics.getResizes());
+        long elementsCopied = plainMetrics.getBytesCopied() / HeapMetrics.BYTES_PER_ELEMENT;
+        assertEquals(elementsCopied * (HeapMetrics.BYTES_PER_ELEMENT + 2 * Long.BYTES), keyedMetrics.getBytesCopied());
+    }
+    @Test
+    public void wideHeapsKeepDoubleEndedOrder() {
+        for (int arity : new int[] {3, 4, 8}) {
+            MinMaxHeap<Integer> heap = new MinMaxHeap<>(1, arity);
+            List<MinMaxHeap.Handle<Integer>> handles = new ArrayList<>();
+            for (Integer element : makeShuffledElementList()) {
+                handles.add(heap.insert(element));
+            }
+            heap.remove(handles.get(5));
+            heap.insertAll(makeShuffledElementList());
+            assertHeapConsistent(heap);
+            List<Integer> repeatedMinimums = new ArrayList<>();
+            List<Integer> repeatedMaximums = new ArrayList<>();
+            while (heap.getSize() > 1) {
+                repeatedMinimums.add(heap.deleteMin());
+                repeatedMaximums.add(heap.deleteMax());
+            }
+            Collections.reverse(repeatedMaximums);
+            assertTrue(isSortedAscending(repeatedMinimums));
+            assertTrue(isSortedAscending(repeatedMaximums));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MinMaxHeap<Integer>(10, 1));
+    }
+    @Test
+    public void deletesClearSlotsAndShrinkTheArrays() throws NoSuchFieldException, IllegalAccessException {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        for (int i = 0; i < 10000; i++) {
+            heap.insert((i * 7919) % 10000);
+        }
+        assertTrue(heap.getCapacity() > 10000);
+        for (int i = 0; i < 9990; i++) {
+            if (i % 2 == 0) {
+                heap.deleteMin();
+            } else {
+                heap.deleteMax();
+            }
+        }
+        assertTrue(heap.getCapacity() <= 4 * 50); // shrank back towards the default capacity
+        assertHeapConsistent(heap);
+        Field minHeapField = MinMaxHeap.class.getDeclaredField("minHeap");
+        Field maxHeapField = MinMaxHeap.class.getDeclaredField("maxHeap");
+        minHeapField.setAccessible(true);
+        maxHeapField.setAccessible(true);
+        Comparable[] minHeap = (Comparable[]) minHeapField.get(heap);
+        Comparable[] maxHeap = (Comparable[]) maxHeapField.get(heap);
+        for (int i = heap.getSize() + 1; i < minHeap.length; i++) {
+            assertNull(minHeap[i]);
+            assertNull(maxHeap[i]);
+        }
+        assertEquals((Integer) 4995, heap.deleteMin());
+    }
+    @Test
+    public void ensureCapacityAndTrimToSize() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(4);
+        heap.ensureCapacity(1000);
+        assertEquals(1001, heap.getCapacity());
+        for (int i = 0; i < 1000; i++) {
+            heap.insert(i);
+        }
+        assertEquals(1001, heap.getCapacity()); // no resize while filling the reserved room
+        while (heap.getSize() > 10) {
+            heap.deleteMax();
+        }
+        assertEquals(1001, heap.getCapacity()); // reserved room is not given back by deletes
+        heap.trimToSize();
+        assertEquals(11, heap.getCapacity());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), repeatedDeleteMin(heap));
+        MinMaxHeap<Integer> bounded = new MinMaxHeap<>(5, true);
+        bounded.insert(1);
+        bounded.trimToSize();
+        assertEquals(6, bounded.getCapacity());
+        bounded.ensureCapacity(5);
+        assertThrows(IllegalStateException.class, () -> bounded.ensureCapacity(6));
+    }
+    @Test
+    public void growthPolicyIsUsedForEveryResize() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1);
+        heap.setGrowthPolicy(new HeapGrowthPolicy() {
+            @Override
+            public int grow(int capacity, int required) {
+                return capacity + 10;
+            }
+            @Override
+            public int shrink(int capacity, int size) {
+                return capacity;
+            }
+        });
+        for (int i = 0; i < 25; i++) {
+            heap.insert(i);
+        }
+        assertEquals(32, heap.getCapacity()); // 2 -> 12 -> 22 -> 32
+        heap.setGrowthPolicy(new HeapGrowthPolicy() {
+            @Override
+            public int grow(int capacity, int required) {
+                return capacity;
+            }
+            @Override
+            public int shrink(int capacity, int size) {
+                return 1; // never below size + 1
+            }
+        });
+        heap.deleteMin();
+        assertEquals(25, heap.getCapacity());
+        assertThrows(IllegalStateException.class, () -> heap.insert(100));
+        assertThrows(IllegalArgumentException.class, () -> heap.setGrowthPolicy(null));
+    }
+    @Test
+    public void comparatorOrdersInsteadOfCompareTo() {
+        MinMaxHeap<String> heap = new MinMaxHeap<>(Comparator.comparing(String::length).thenComparing(Comparator.reverseOrder()));
+        for (String name : Arrays.asList("Sung Jin-Woo", "Cha Hae-In", "Yoo Jin-Ho", "Go Gun-Hee", "Baek Yoonho")) {
+            heap.insert(name);
+        }
+        assertEquals("Yoo Jin-Ho", heap.findMin());
+        assertEquals("Sung Jin-Woo", heap.findMax());
+        MinMaxHeap<String> merged = MinMaxHeap.merge(heap, new MinMaxHeap<>());
+        assertEquals(Arrays.asList("Yoo Jin-Ho", "Go Gun-Hee", "Cha Hae-In", "Baek Yoonho", "Sung Jin-Woo"), repeatedDeleteMin(merged));
+        assertThrows(IllegalArgumentException.class, () -> new MinMaxHeap<String>((Comparator<String>) null));
+    }
+    @Test
+    public void cachedKeysFollowUpdates() {
+        MinMaxHeap<GottRider> byReview = MinMaxHeap.comparingDouble(GottRider::getAverageReviewGiven);
+        MinMaxHeap<GottRider> byRides = MinMaxHeap.comparingLong(GottRider::getPreviousRides);
+        List<MinMaxHeap.Handle<GottRider>> reviewHandles = new ArrayList<>();
+        List<MinMaxHeap.Handle<GottRider>> rideHandles = new ArrayList<>();
+        for (int i = 0; i < LARGE_HEAP_SIZE; i++) {
+            GottRider rider = new GottRider("Rider " + i, (long) (i * 37 % LARGE_HEAP_SIZE) + 1, (i * 13 % 50) / 10.0);
+            reviewHandles.add(byReview.insert(rider));
+            rideHandles.add(byRides.insert(rider));
+        }
+        for (int i = 0; i < LARGE_HEAP_SIZE; i += 3) { // a five star ride raises both keys
+            reviewHandles.get(i).getElement().rideCompleted(5L);
+            byReview.update(reviewHandles.get(i));
+            byRides.increaseKey(rideHandles.get(i));
+        }
+        assertHeapConsistent(byReview); // the cached key orders like GottRider.compareTo
+        double lastReview = -1;
+        while (byReview.getSize() > 0) {
+            double review = byReview.deleteMin().getAverageReviewGiven();
+            assertTrue(review >= lastReview);
+            lastReview = review;
+        }
+        long lastRides = Long.MAX_VALUE;
+        while (byRides.getSize() > 0) {
+            long rides = byRides.deleteMax().getPreviousRides();
+            assertTrue(rides <= lastRides);
+            lastRides = rides;
+        }
+        MinMaxHeap<Double> doubles = MinMaxHeap.comparingDouble(Double::doubleValue);
+        doubles.insertAll(Arrays.asList(0.0, -0.5, Double.NEGATIVE_INFINITY, 2.5, -0.0));
+        assertEquals(Arrays.asList(Double.NEGATIVE_INFINITY, -0.5, -0.0, 0.0, 2.5), repeatedDeleteMin(doubles));
+        assertThrows(IllegalArgumentException.class, () -> doubles.insert(Double.NaN));
+    }
+    @Test
+    public void rejectedNaNKeysLeaveTheHeapUnchanged() {
+        MinMaxHeap<Double> doubles = MinMaxHeap.comparingDouble(Double::doubleValue);
+        doubles.insert(3.0);
+        doubles.insert(1.0);
+        doubles.insert(2.0);
+        assertThrows(IllegalArgumentException.class, () -> doubles.insert(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> doubles.insertAll(Arrays.asList(0.5, Double.NaN)));
+        assertThrows(IllegalArgumentException.class, () -> doubles.replaceMin(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> doubles.replaceMax(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> doubles.insertThenDeleteMin(Double.NaN));
+        assertEquals(3, doubles.getSize());
+        assertEquals(1.0, doubles.findMin(), 0.0);
+        assertEquals(3.0, doubles.findMax(), 0.0);
+        assertEquals(Arrays.asList(1.0, 2.0, 3.0), repeatedDeleteMin(doubles));
+    }
+    @Test
+    public void sortedIteratorsLeaveTheHeapUnchanged() {
+        for (int arity : new int[] {2, 4}) {
+            MinMaxHeap<Integer> heap = new MinMaxHeap<>(1, arity);
+            heap.insertAll(makeShuffledElementList());
+            heap.insertAll(makeShuffledElementList()); // duplicates come out next to each other
+            List<Integer> ascending = new ArrayList<>();
+            heap.ascendingIterator().forEachRemaining(ascending::add);
+            List<Integer> descending = new ArrayList<>();
+            heap.descendingIterator().forEachRemaining(descending::add);
+            assertEquals(2 * LARGE_HEAP_SIZE, heap.getSize());
+            Collections.reverse(descending);
+            assertEquals(ascending, descending);
+            assertEquals(repeatedDeleteMin(heap), ascending);
+        }
+        Iterator<Integer> empty = new MinMaxHeap<Integer>().ascendingIterator();
+        assertFalse(empty.hasNext());
+        assertThrows(NoSuchElementException.class, empty::next);
+    }
+    @Test
+    public void iteratorsFailFastAfterAChange() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        heap.insertAll(makeShuffledElementList());
+        Iterator<Integer> ascending = heap.ascendingIterator();
+        Iterator<Integer> unordered = heap.iterator();
+        assertEquals((Integer) 0, ascending.next());
+        unordered.next();
+        heap.deleteMax();
+        assertThrows(ConcurrentModificationException.class, ascending::next);
+        assertThrows(ConcurrentModificationException.class, unordered::next);
+        Stream<Integer> stream = heap.stream();
+        heap.insert(LARGE_HEAP_SIZE);
+        assertThrows(ConcurrentModificationException.class, () -> stream.collect(Collectors.toList()));
+    }
+    @Test
+    public void streamVisitsEveryElementOnce() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        heap.insertAll(IntStream.range(0, 10000).boxed().collect(Collectors.toList()));
+        assertEquals(10000, heap.stream().parallel().distinct().count());
+        assertEquals(10000L * 9999 / 2, heap.stream().parallel().mapToLong(Integer::longValue).sum());
+        int visited = 0;
+        for (Integer element : heap) {
+            visited++;
+        }
+        assertEquals(10000, visited);
+    }
+    @Test
+    public void rangeMatchesAFilteredReference() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(1, 3);
+        List<Integer> elements = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 2000; i++) {
+            elements.add(random.nextInt(500));
+        }
+        heap.insertAll(elements);
+        int[][] ranges = {{0, 499}, {100, 120}, {250, 250}, {-10, 3}, {498, 1000}, {300, 200}, {600, 700}};
+        for (int[] range : ranges) {
+            List<Integer> expected = elements.stream().filter(e -> e >= range[0] && e <= range[1]).sorted().collect(Collectors.toList());
+            List<Integer> actual = heap.range(range[0], range[1]);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), heap.countInRange(range[0], range[1]));
+        }
+        assertEquals(2000, heap.getSize());
+        assertThrows(IllegalArgumentException.class, () -> heap.range(null, 5));
+        assertEquals(0, new MinMaxHeap<Integer>().countInRange(0, 10));
+    }
+    @Test
+    public void ridersWithinAReviewBand() {
+        MinMaxHeap<GottRider> heap = new MinMaxHeap<>();
+        heap.insert(new GottRider("Sung Jin-Woo", 10L, 4.5));
+        heap.insert(new GottRider("Cha Hae-In", 3L, 3.9));
+        heap.insert(new GottRider("Yoo Jin-Ho", 7L, 2.0));
+        heap.insert(new GottRider("Go Gun-Hee", 1L, 4.0));
+        List<String> names = heap.range(new GottRider("lo", 0L, 3.5), new GottRider("hi", 0L, 4.0)).stream()
+                .map(GottRider::getName).sorted().collect(Collectors.toList());
+        assertEquals(Arrays.asList("Cha Hae-In", "Go Gun-Hee"), names);
+    }
+    @Test
+    public void largeArraysAreBuiltInParallel() {
+        Integer[] elements = new Integer[200000];
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = random.nextInt(50000); // with duplicates
+        }
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>(elements);
+        assertHeapConsistent(heap);
+        Integer[] sorted = elements.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(sorted[i], heap.deleteMin());
+            assertEquals(sorted[sorted.length - 1 - i], heap.deleteMax());
+        }
+        assertHeapConsistent(heap);
+        heap.insert(-1);
+        assertEquals((Integer) (-1), heap.findMin());
+    }
+    @Test
+    public void bulkDeletesMatchRepeatedDeletes() {
+        for (int k : new int[] {0, 1, 5, 40, 150, 300, 400}) {
+            MinMaxHeap<Integer> heap = new MinMaxHeap<>(1);
+            List<MinMaxHeap.Handle<Integer>> handles = new ArrayList<>();
+            List<Integer> reference = new ArrayList<>();
+            Random random = new Random(FIXED_RANDOMNESS_SEED + k);
+            for (int i = 0; i < 300; i++) {
+                int element = random.nextInt(100);
+                handles.add(heap.insert(element));
+                reference.add(element);
+            }
+            Collections.sort(reference);
+            int expectedCount = Math.min(k, 300);
+            assertEquals(reference.subList(0, expectedCount), heap.deleteMinimums(k));
+            List<Integer> rest = new ArrayList<>(reference.subList(expectedCount, 300));
+            assertHeapConsistent(heap);
+            assertEquals(rest.size(), handles.stream().filter(MinMaxHeap.Handle::isValid).count());
+            for (MinMaxHeap.Handle<Integer> handle : handles) { // the handles that are left still work
+                if (handle.isValid()) {
+                    heap.update(handle);
+                }
+            }
+            List<Integer> biggest = heap.deleteMaximums(k / 2);
+            Collections.reverse(rest);
+            assertEquals(rest.subList(0, Math.min(k / 2, rest.size())), biggest);
+            assertHeapConsistent(heap);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MinMaxHeap<Integer>().deleteMaximums(-1));
+    }
+    @Test
+    public void drainToAddsTheSmallestInOrder() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        heap.insertAll(makeShuffledElementList());
+        List<Integer> drained = new ArrayList<>(Arrays.asList(-1));
+        assertEquals(3, heap.drainTo(drained, 3));
+        assertEquals(Arrays.asList(-1, 0, 1, 2), drained);
+        assertEquals(LARGE_HEAP_SIZE - 3, heap.drainTo(drained, Integer.MAX_VALUE));
+        assertEquals(LARGE_HEAP_SIZE + 1, drained.size());
+        assertEquals(0, heap.getSize());
+    }
+    @Test
+    public void fusedOperationsMatchInsertAndDelete() {
+        MinMaxHeap<Integer> fused = new MinMaxHeap<>();
+        MinMaxHeap<Integer> separate = new MinMaxHeap<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < LARGE_HEAP_SIZE; i++) {
+            int element = random.nextInt(1000);
+            fused.insert(element);
+            separate.insert(element);
+        }
+        for (int step = 0; step < 2000; step++) {
+            int element = random.nextInt(1200) - 100;
+            switch (step % 4) {
+                case 0:
+                    separate.insert(element);
+                    assertEquals(separate.deleteMin(), fused.insertThenDeleteMin(element));
+                    break;
+                case 1:
+                    separate.insert(element);
+                    assertEquals(separate.deleteMax(), fused.insertThenDeleteMax(element));
+                    break;
+                case 2:
+                    Integer min = separate.deleteMin();
+                    separate.insert(element);
+                    assertEquals(min, fused.replaceMin(element));
+                    break;
+                default:
+                    Integer max = separate.deleteMax();
+                    separate.insert(element);
+                    assertEquals(max, fused.replaceMax(element));
+            }
+        }
+        assertHeapConsistent(fused);
+        assertEquals(repeatedDeleteMin(separate), repeatedDeleteMin(fused));
+    }
+    @Test
+    public void fusedOperationsReturnANewExtremeRightAway() {
+        MinMaxHeap<Integer> heap = new MinMaxHeap<>();
+        assertEquals((Integer) 7, heap.insertThenDeleteMax(7));
+        assertEquals(0, heap.getSize());
+        assertThrows(NoSuchElementException.class, () -> heap.replaceMin(1));
+        heap.insertAll(makeShuffledElementList());
+        HeapMetrics metrics = heap.enableMetrics();
+        assertEquals((Integer) (-1), heap.insertThenDeleteMin(-1));
+        assertEquals((Integer) LARGE_HEAP_SIZE, heap.insertThenDeleteMax(LARGE_HEAP_SIZE));
+        assertEquals(2, metrics.getComparisons()); // one against each root
+        assertEquals(0, metrics.getMinSwaps() + metrics.getMaxSwaps());
+        assertEquals((Integer) 0, heap.replaceMin(-5));
+        assertEquals((Integer) (-5), heap.findMin());
+        assertThrows(IllegalArgumentException.class, () -> heap.replaceMax(null));
+    }
     private List<Integer> makeShuffledElementList() {
         List<Integer> shuffledElements = IntStream.range(0, LARGE_HEAP_SIZE).boxed().collect(Collectors.toCollection(ArrayList::new));
         Collections.shuffle(shuffledElements, new Random(FIXED_RANDOMNESS_SEED));
@@ -366,6 +929,37 @@ public class MinMaxHeapTest {
         return repeatedMaximums;
     }
 
+    // Checks both heap properties and that minToMax/maxToMin point at the same element in both heaps.
+    private <T extends Comparable<T>> void assertHeapConsistent(MinMaxHeap<T> heap) {
+        try {
+            Field minToMaxField = MinMaxHeap.class.getDeclaredField("minToMax");
+            Field maxToMinField = MinMaxHeap.class.getDeclaredField("maxToMin");
+            Field minHeapField = MinMaxHeap.class.getDeclaredField("minHeap");
+            Field maxHeapField = MinMaxHeap.class.getDeclaredField("maxHeap");
+            Field arityField = MinMaxHeap.class.getDeclaredField("arity");
+            minToMaxField.setAccessible(true);
+            maxToMinField.setAccessible(true);
+            minHeapField.setAccessible(true);
+            maxHeapField.setAccessible(true);
+            arityField.setAccessible(true);
+            int arity = (int) arityField.get(heap);
+            int[] minToMax = (int[]) minToMaxField.get(heap);
+            int[] maxToMin = (int[]) maxToMinField.get(heap);
+            Comparable[] minHeap = (Comparable[]) minHeapField.get(heap);
+            Comparable[] maxHeap = (Comparable[]) maxHeapField.get(heap);
+            for (int i = 1; i <= heap.getSize(); i++) {
+                assertSame(minHeap[i], maxHeap[minToMax[i]]);
+                assertSame(maxHeap[i], minHeap[maxToMin[i]]);
+                if (i > 1) {
+                    int parent = (i - 2) / arity + 1;
+                    assertTrue(minHeap[parent].compareTo(minHeap[i]) <= 0);
+                    assertTrue(maxHeap[parent].compareTo(maxHeap[i]) >= 0);
+                }
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            fail(e.getMessage());
+        }
+    }
     private <T extends Comparable<T>> boolean isSortedAscending(List<T> elements) {
         boolean isSorted = true;
         for (int index = 0; index < elements.size() - 1; index++) {
@@ -0,0 +1,78 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PercentileTrackerTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final double[] PERCENTILES = {0.1, 0.5, 0.9, 1.0};
+
+    @Test
+    public void emptyTrackerThrowsException() {
+        PercentileTracker<Integer> tracker = new PercentileTracker<>();
+        assertThrows(NoSuchElementException.class, tracker::median);
+        assertThrows(IllegalArgumentException.class, () -> tracker.percentile(0.9));
+        assertThrows(IllegalArgumentException.class, () -> new PercentileTracker<Integer>(0.5, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> new PercentileTracker<Integer>(0.0));
+    }
+    @Test
+    public void percentilesMatchASortedReference() {
+        PercentileTracker<Integer> tracker = new PercentileTracker<>(PERCENTILES);
+        List<MinMaxHeap.Handle<Integer>> handles = new ArrayList<>();
+        List<Integer> reference = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int step = 0; step < 3000; step++) {
+            if (handles.isEmpty() || random.nextInt(3) > 0) {
+                int element = random.nextInt(1000);
+                handles.add(tracker.insert(element));
+                reference.add(element);
+            } else {
+                MinMaxHeap.Handle<Integer> handle = handles.remove(random.nextInt(handles.size()));
+                reference.remove(tracker.remove(handle));
+                assertFalse(handle.isValid());
+            }
+            assertEquals(reference.size(), tracker.getSize());
+            if (!reference.isEmpty()) {
+                assertPercentiles(reference, tracker);
+            }
+        }
+    }
+    @Test
+    public void ridersMoveBetweenPercentilesAsRidesComplete() {
+        PercentileTracker<GottRider> tracker = new PercentileTracker<>(PERCENTILES);
+        List<MinMaxHeap.Handle<GottRider>> handles = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 500; i++) {
+            handles.add(tracker.insert(new GottRider("Rider " + i, 1L + random.nextInt(20), random.nextInt(50) / 10.0)));
+        }
+        for (int step = 0; step < 2000; step++) {
+            MinMaxHeap.Handle<GottRider> handle = handles.get(random.nextInt(handles.size()));
+            handle.getElement().rideCompleted((long) random.nextInt(6));
+            tracker.update(handle);
+            assertTrue(handle.isValid());
+        }
+        List<Double> reviews = new ArrayList<>();
+        for (MinMaxHeap.Handle<GottRider> handle : handles) {
+            reviews.add(handle.getElement().getAverageReviewGiven());
+        }
+        Collections.sort(reviews);
+        for (double p : PERCENTILES) {
+            int rank = (int) Math.ceil(p * reviews.size());
+            assertEquals(reviews.get(rank - 1), tracker.percentile(p).getAverageReviewGiven(), 0.0);
+        }
+        assertEquals(reviews.get(0), tracker.findMin().getAverageReviewGiven(), 0.0);
+    }
+
+    private void assertPercentiles(List<Integer> reference, PercentileTracker<Integer> tracker) {
+        List<Integer> sorted = new ArrayList<>(reference);
+        Collections.sort(sorted);
+        for (double p : PERCENTILES) {
+            int rank = Math.max(1, (int) Math.ceil(p * sorted.size()));
+            assertEquals(sorted.get(rank - 1), tracker.percentile(p));
+        }
+        assertEquals(sorted.get(0), tracker.findMin());
+        assertEquals(sorted.get(sorted.size() - 1), tracker.findMax());
+    }
+}
@@ -0,0 +1,154 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RideEventPipelineTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final int THREADS = 4;
+
+    @Test
+    public void repeatedRidesOfABatchAreCoalesced() {
+        RiderRegistry registry = new RiderRegistry();
+        registry.register(new GottRider("Sung Jin-Woo", 1L, 5.0));
+        registry.register(new GottRider("Cha Hae-In", 1L, 3.0));
+        RideEventPipeline pipeline = new RideEventPipeline(registry, 256);
+        for (int i = 0; i < 50; i++) {
+            pipeline.publish("Sung Jin-Woo", 1L);
+            pipeline.publish("Cha Hae-In", 5L);
+        }
+        pipeline.publish("Go Gun-Hee", 5L);
+        assertEquals(0, pipeline.getProcessedEvents());
+        assertEquals(101, pipeline.processBatch());
+        assertEquals(0, pipeline.processBatch());
+        assertEquals(101, pipeline.getProcessedEvents());
+        assertEquals(1, pipeline.getDroppedEvents());
+        assertEquals(2, pipeline.getHeapRepairs());
+        assertEquals(51L, registry.find("Sung Jin-Woo").getPreviousRides());
+        assertEquals("Cha Hae-In", pipeline.bestRider().getName());
+        assertEquals("Sung Jin-Woo", pipeline.worstRider().getName());
+        assertEquals(registry.bestRider(), pipeline.bestRider());
+    }
+    @Test
+    public void batchesOfManyRidersKeepBestAndWorstExact() {
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int round = 0; round < 500; round++) {
+            RiderRegistry registry = new RiderRegistry();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                names.add("Rider " + i);
+                registry.register(new GottRider("Rider " + i, 1L + random.nextInt(5), random.nextDouble() * 5));
+            }
+            RideEventPipeline pipeline = new RideEventPipeline(registry, 64);
+            for (int i = 0; i < 40; i++) { // one batch that changes many different riders
+                pipeline.publish(names.get(random.nextInt(names.size())), random.nextInt(6));
+            }
+            assertEquals(40, pipeline.processBatch());
+            GottRider best = null;
+            GottRider worst = null;
+            for (String name : names) {
+                GottRider rider = registry.find(name);
+                if (best == null || rider.compareTo(best) > 0) {
+                    best = rider;
+                }
+                if (worst == null || rider.compareTo(worst) < 0) {
+                    worst = rider;
+                }
+            }
+            assertEquals(0, best.compareTo(pipeline.bestRider()));
+            assertEquals(0, worst.compareTo(pipeline.worstRider()));
+            assertEquals(0, best.compareTo(registry.bestRider()));
+            assertEquals(0, worst.compareTo(registry.worstRider()));
+            assertEquals(30, registry.getSize());
+        }
+    }
+    @Test
+    public void startedAndClosedPipelinesRejectMisuse() {
+        RiderRegistry registry = new RiderRegistry();
+        registry.register(new GottRider("Cha Hae-In", 1L, 3.0));
+        RideEventPipeline pipeline = new RideEventPipeline(registry);
+        pipeline.start();
+        assertThrows(IllegalStateException.class, pipeline::processBatch); // the consumer thread owns the batches
+        pipeline.publish("Cha Hae-In", 5L);
+        pipeline.close();
+        assertEquals(2L, registry.find("Cha Hae-In").getPreviousRides());
+        assertThrows(IllegalStateException.class, () -> pipeline.publish("Cha Hae-In", 5L));
+        RideEventPipeline unstarted = new RideEventPipeline(registry);
+        unstarted.close();
+        assertThrows(IllegalStateException.class, unstarted::start);
+    }
+    @Test
+    public void fullRingBufferRejectsUntilTheConsumerCatchesUp() {
+        RiderRegistry registry = new RiderRegistry();
+        registry.register(new GottRider("Cha Hae-In", 1L, 3.0));
+        RideEventPipeline pipeline = new RideEventPipeline(registry, 3); // rounded up to 4
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.tryPublish("Cha Hae-In", 4L));
+        }
+        assertFalse(pipeline.tryPublish("Cha Hae-In", 4L));
+        assertEquals(4, pipeline.processBatch());
+        assertTrue(pipeline.tryPublish("Cha Hae-In", 4L));
+        pipeline.close();
+        assertEquals(6L, registry.find("Cha Hae-In").getPreviousRides());
+        assertThrows(IllegalArgumentException.class, () -> pipeline.tryPublish(null, 4L));
+        assertThrows(IllegalArgumentException.class, () -> new RideEventPipeline(registry, 0));
+        assertThrows(NoSuchElementException.class, () -> new RideEventPipeline(new RiderRegistry()).bestRider());
+    }
+    @Test
+    public void concurrentProducersLoseNoRide() throws Exception {
+        int riders = 50;
+        int ridesPerThread = 20_000;
+        RiderRegistry registry = new RiderRegistry();
+        for (int i = 0; i < riders; i++) {
+            registry.register(new GottRider("Rider " + i, 1L, 3.0));
+        }
+        RideEventPipeline pipeline = new RideEventPipeline(registry, 1024); // small, so producers wait for the consumer
+        pipeline.start();
+        assertThrows(IllegalStateException.class, pipeline::start);
+        long[][] stars = new long[THREADS][riders]; // the stars each thread gave each rider
+        int[][] rides = new int[THREADS][riders];
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            producers.add(pool.submit(() -> {
+                Random random = new Random(FIXED_RANDOMNESS_SEED + thread);
+                for (int i = 0; i < ridesPerThread; i++) {
+                    int rider = random.nextInt(riders);
+                    long given = random.nextInt(6);
+                    pipeline.publish("Rider " + rider, given);
+                    stars[thread][rider] += given;
+                    rides[thread][rider]++;
+                }
+            }));
+        }
+        for (Future<?> producer : producers) {
+            producer.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        pipeline.close();
+        assertEquals((long) THREADS * ridesPerThread, pipeline.getProcessedEvents());
+        assertEquals(0, pipeline.getDroppedEvents());
+        assertTrue(pipeline.getHeapRepairs() <= pipeline.getProcessedEvents());
+        GottRider best = null;
+        for (int i = 0; i < riders; i++) {
+            long totalStars = 3;
+            long totalRides = 1;
+            for (int t = 0; t < THREADS; t++) {
+                totalStars += stars[t][i];
+                totalRides += rides[t][i];
+            }
+            GottRider rider = registry.find("Rider " + i);
+            assertEquals(totalRides, rider.getPreviousRides());
+            assertEquals((double) totalStars / totalRides, rider.getAverageReviewGiven(), 1e-9);
+            if (best == null || rider.compareTo(best) > 0) {
+                best = rider;
+            }
+        }
+        assertEquals(0, best.compareTo(pipeline.bestRider()));
+        assertEquals(0, best.compareTo(registry.bestRider()));
+    }
+}
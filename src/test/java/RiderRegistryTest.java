@@ -0,0 +1,56 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RiderRegistryTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+
+    @Test
+    public void completedRidesReorderBestAndWorst() {
+        RiderRegistry registry = new RiderRegistry();
+        registry.register(new GottRider("Sung Jin-Woo", 1L, 5.0));
+        registry.register(new GottRider("Cha Hae-In", 1L, 3.0));
+        registry.register(new GottRider("Yoo Jin-Ho", 1L, 1.0));
+        assertEquals("Sung Jin-Woo", registry.bestRider().getName());
+        assertEquals("Yoo Jin-Ho", registry.worstRider().getName());
+        registry.completeRide("Sung Jin-Woo", 0L); // 2.5
+        registry.completeRide("Yoo Jin-Ho", 5L); // 3.0
+        assertEquals(3.0, registry.bestRider().getAverageReviewGiven(), 0.0); // Cha Hae-In and Yoo Jin-Ho tie
+        assertEquals("Sung Jin-Woo", registry.worstRider().getName());
+        assertEquals(2L, registry.find("Sung Jin-Woo").getPreviousRides());
+        assertEquals("Sung Jin-Woo", registry.unregister("Sung Jin-Woo").getName());
+        assertNull(registry.find("Sung Jin-Woo"));
+        assertEquals(2, registry.getSize());
+    }
+    @Test
+    public void unknownAndDuplicateNamesThrowException() {
+        RiderRegistry registry = new RiderRegistry();
+        registry.register(new GottRider("Cha Hae-In", 1L, 3.0));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new GottRider("Cha Hae-In", 2L, 4.0)));
+        assertThrows(NoSuchElementException.class, () -> registry.completeRide("Go Gun-Hee", 5L));
+        assertThrows(NoSuchElementException.class, () -> registry.unregister("Go Gun-Hee"));
+        registry.unregister("Cha Hae-In");
+        assertThrows(NoSuchElementException.class, registry::bestRider);
+    }
+    @Test
+    public void manyRidesMatchAScan() {
+        RiderRegistry registry = new RiderRegistry();
+        List<GottRider> riders = new ArrayList<>();
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 200; i++) {
+            GottRider rider = new GottRider("Rider " + i, 1L + random.nextInt(10), random.nextInt(50) / 10.0);
+            riders.add(rider);
+            registry.register(rider);
+        }
+        for (int ride = 0; ride < 5000; ride++) {
+            registry.completeRide("Rider " + random.nextInt(200), random.nextInt(6));
+            double best = riders.stream().mapToDouble(GottRider::getAverageReviewGiven).max().getAsDouble();
+            double worst = riders.stream().mapToDouble(GottRider::getAverageReviewGiven).min().getAsDouble();
+            assertEquals(best, registry.bestRider().getAverageReviewGiven(), 0.0);
+            assertEquals(worst, registry.worstRider().getAverageReviewGiven(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ShardedMinMaxHeapTest {
+
+    static final int THREADS = 4;
+    static final int ELEMENTS_PER_THREAD = 5000;
+
+    @Test
+    public void emptyHeapThrowsException() {
+        ShardedMinMaxHeap<Integer> heap = new ShardedMinMaxHeap<>(4);
+        assertThrows(NoSuchElementException.class, heap::deleteMin);
+        assertThrows(NoSuchElementException.class, heap::findMax);
+        assertEquals(Collections.emptyList(), heap.topK(3));
+        assertThrows(IllegalArgumentException.class, () -> heap.bottomK(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedMinMaxHeap<Integer>(0));
+    }
+    @Test
+    public void topAndBottomKMatchASortedReference() {
+        ShardedMinMaxHeap<Integer> heap = new ShardedMinMaxHeap<>(7);
+        List<Integer> elements = new ArrayList<>();
+        Random random = new Random(1234L);
+        for (int i = 0; i < 3000; i++) {
+            int element = random.nextInt(10000);
+            elements.add(element);
+            heap.insert(element);
+        }
+        Collections.sort(elements);
+        assertEquals(elements.subList(0, 25), heap.bottomK(25));
+        List<Integer> descending = new ArrayList<>(elements);
+        Collections.reverse(descending);
+        assertEquals(descending.subList(0, 40), heap.topK(40));
+        assertEquals(descending, heap.topK(5000));
+        assertEquals(elements.get(0), heap.findMin());
+        assertEquals(descending.get(0), heap.deleteMax());
+        assertEquals(elements.get(0), heap.deleteMin());
+        assertEquals(2998, heap.getSize());
+    }
+    @Test
+    public void ridersCanBeUpdatedInTheirShard() {
+        ShardedMinMaxHeap<GottRider> heap = new ShardedMinMaxHeap<>(3);
+        List<MinMaxHeap.Handle<GottRider>> handles = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            handles.add(heap.insert(new GottRider("Rider " + i, 1L, (i % 5) * 1.0)));
+        }
+        handles.get(0).getElement().rideCompleted(5L); // 0.0 -> 2.5
+        heap.update(handles.get(0));
+        heap.remove(handles.get(4)); // one of the 4.0 riders
+        assertEquals(4.0, heap.findMax().getAverageReviewGiven(), 0.0);
+        assertEquals(Arrays.asList("Rider 0"), heap.bottomK(30).stream().filter(r -> r.getAverageReviewGiven() == 2.5)
+                .map(GottRider::getName).collect(Collectors.toList()));
+        assertEquals(29, heap.getSize());
+    }
+    @Test
+    public void concurrentInsertsLoseNothing() throws Exception {
+        ShardedMinMaxHeap<Integer> heap = new ShardedMinMaxHeap<>(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> inserts = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * ELEMENTS_PER_THREAD;
+                inserts.add(pool.submit(() -> {
+                    for (int i = 0; i < ELEMENTS_PER_THREAD; i++) {
+                        heap.insert(offset + i);
+                    }
+                }));
+            }
+            for (Future<?> future : inserts) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        int total = THREADS * ELEMENTS_PER_THREAD;
+        assertEquals(total, heap.getSize());
+        assertEquals(IntStream.range(0, total).boxed().collect(Collectors.toList()), heap.bottomK(total));
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.*;
+
+public class SynchronizedMinMaxHeapTest {
+
+    @Test
+    public void basicOperations() {
+        SynchronizedMinMaxHeap<Integer> heap = new SynchronizedMinMaxHeap<>();
+        assertThrows(NoSuchElementException.class, heap::findMin);
+        assertEquals(0, heap.getSize());
+        heap.insert(5);
+        MinMaxHeap.Handle<Integer> handle = heap.insert(1);
+        heap.insert(10);
+        assertEquals((Integer) 1, heap.findMin());
+        assertEquals((Integer) 10, heap.findMax());
+        assertEquals((Integer) 1, heap.remove(handle));
+        assertEquals((Integer) 5, heap.findMin());
+        assertEquals((Integer) 10, heap.deleteMax());
+        assertEquals((Integer) 5, heap.deleteMin());
+        assertThrows(NoSuchElementException.class, heap::findMax);
+    }
+    @Test
+    public void readersDoNotWaitForTheWriterLock() throws Exception {
+        SynchronizedMinMaxHeap<Integer> heap = new SynchronizedMinMaxHeap<>();
+        heap.insert(3);
+        heap.insert(7);
+        Field lockField = SynchronizedMinMaxHeap.class.getDeclaredField("lock");
+        lockField.setAccessible(true);
+        ReentrantLock lock = (ReentrantLock) lockField.get(heap);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        lock.lock(); // a writer is busy
+        try {
+            Future<Integer> min = reader.submit(heap::findMin);
+            Future<Integer> max = reader.submit(heap::findMax);
+            assertEquals((Integer) 3, min.get(5, TimeUnit.SECONDS));
+            assertEquals((Integer) 7, max.get(5, TimeUnit.SECONDS));
+        } finally {
+            lock.unlock();
+            reader.shutdownNow();
+        }
+    }
+    @Test
+    public void readersSeeMatchingExtremesWhileWritersRun() throws Exception {
+        SynchronizedMinMaxHeap<Integer> heap = new SynchronizedMinMaxHeap<>();
+        heap.insert(0);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writes = writer.submit(() -> {
+                for (int i = 1; i <= 20000; i++) {
+                    heap.insert(i);
+                    if (i % 3 == 0) {
+                        heap.deleteMax();
+                    }
+                }
+            });
+            while (!writes.isDone()) {
+                int min = heap.findMin();
+                int max = heap.findMax();
+                assertEquals(0, min); // 0 is never deleted
+                assertTrue(min <= max);
+            }
+            writes.get();
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class WindowedMinMaxHeapTest {
+
+    static final long FIXED_RANDOMNESS_SEED = 1234L;
+    static final long TTL = 100;
+
+    @Test
+    public void expiredElementsAreNeverReturned() {
+        AtomicLong clock = new AtomicLong();
+        WindowedMinMaxHeap<Integer> heap = new WindowedMinMaxHeap<>(TTL, clock::get);
+        heap.insert(5); // expires at 100
+        clock.set(50);
+        heap.insert(1); // expires at 150
+        heap.insert(9);
+        assertEquals((Integer) 1, heap.findMin());
+        assertEquals((Integer) 9, heap.findMax());
+        clock.set(100);
+        assertEquals(2, heap.getSize());
+        clock.set(149);
+        assertEquals((Integer) 1, heap.deleteMin());
+        assertEquals((Integer) 9, heap.findMin());
+        clock.set(150);
+        assertEquals(0, heap.getSize());
+        assertThrows(NoSuchElementException.class, heap::deleteMax);
+        assertThrows(IllegalArgumentException.class, () -> new WindowedMinMaxHeap<Integer>(0));
+    }
+    @Test
+    public void touchedElementsStayInTheWindow() {
+        AtomicLong clock = new AtomicLong();
+        WindowedMinMaxHeap<GottRider> heap = new WindowedMinMaxHeap<>(TTL, clock::get);
+        MinMaxHeap.Handle<GottRider> active = heap.insert(new GottRider("Sung Jin-Woo", 10L, 2.0));
+        MinMaxHeap.Handle<GottRider> idle = heap.insert(new GottRider("Cha Hae-In", 3L, 4.0));
+        clock.set(80);
+        active.getElement().rideCompleted(5L);
+        heap.update(active);
+        heap.touch(active);
+        clock.set(120);
+        assertEquals(1, heap.getSize());
+        assertFalse(idle.isValid());
+        assertThrows(IllegalArgumentException.class, () -> heap.touch(idle));
+        assertEquals("Sung Jin-Woo", heap.findMax().getName());
+        clock.set(179);
+        assertEquals(0, heap.evictExpired());
+        clock.set(180);
+        assertEquals(1, heap.evictExpired());
+    }
+    @Test
+    public void touchesKeepOneExpiryEntryPerElement() throws NoSuchFieldException, IllegalAccessException {
+        AtomicLong clock = new AtomicLong();
+        WindowedMinMaxHeap<Integer> heap = new WindowedMinMaxHeap<>(TTL, clock::get);
+        MinMaxHeap.Handle<Integer> active = heap.insert(7);
+        heap.insert(3);
+        for (int i = 0; i < 100_000; i++) {
+            clock.incrementAndGet();
+            heap.touch(active);
+        }
+        Field field = WindowedMinMaxHeap.class.getDeclaredField("expiries");
+        field.setAccessible(true);
+        LongMinMaxHeap expiries = (LongMinMaxHeap) field.get(heap);
+        assertEquals(2, expiries.getSize());
+        assertEquals(1, heap.getSize()); // 3 expired at 100, 7 was touched until the end
+        assertEquals(1, expiries.getSize()); // the entry of 7 was re-keyed to its latest touch
+        clock.addAndGet(TTL - 1);
+        assertEquals((Integer) 7, heap.findMin());
+        clock.incrementAndGet();
+        assertEquals(0, heap.getSize());
+        assertEquals(0, expiries.getSize());
+    }
+    @Test
+    public void elementsThatLeaveEarlyFreeTheirSlots() throws NoSuchFieldException, IllegalAccessException {
+        AtomicLong clock = new AtomicLong();
+        WindowedMinMaxHeap<Integer> heap = new WindowedMinMaxHeap<>(1_000_000_000L, clock::get); // nothing expires
+        MinMaxHeap.Handle<Integer> kept = heap.insert(-1); // smaller than everything, deleteMax never takes it
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int i = 0; i < 100_000; i++) {
+            clock.incrementAndGet();
+            MinMaxHeap.Handle<Integer> handle = heap.insert(random.nextInt(1000));
+            if (i % 2 == 0) {
+                heap.remove(handle);
+            } else {
+                heap.deleteMax();
+            }
+        }
+        assertEquals(1, heap.getSize());
+        assertTrue(kept.isValid());
+        Field slots = WindowedMinMaxHeap.class.getDeclaredField("slots");
+        slots.setAccessible(true);
+        assertTrue(((Object[]) slots.get(heap)).length <= 16); // freed slots were reused
+        Field field = WindowedMinMaxHeap.class.getDeclaredField("expiries");
+        field.setAccessible(true);
+        assertTrue(((LongMinMaxHeap) field.get(heap)).getSize() <= 32); // stale entries were dropped by rebuilds
+        clock.set(1_000_000_000L);
+        assertEquals(0, heap.getSize());
+        assertFalse(kept.isValid());
+    }
+    @Test
+    public void slidingWindowMatchesAFilteredReference() {
+        AtomicLong clock = new AtomicLong();
+        WindowedMinMaxHeap<Integer> heap = new WindowedMinMaxHeap<>(TTL, clock::get);
+        Map<MinMaxHeap.Handle<Integer>, Long> live = new HashMap<>(); // handle -> expiry
+        Random random = new Random(FIXED_RANDOMNESS_SEED);
+        for (int step = 0; step < 5000; step++) {
+            clock.addAndGet(random.nextInt(3));
+            long now = clock.get();
+            live.values().removeIf(expiry -> expiry <= now);
+            int action = random.nextInt(10);
+            if (action < 6 || live.isEmpty()) {
+                live.put(heap.insert(random.nextInt(1000)), now + TTL);
+            } else if (action < 8) {
+                MinMaxHeap.Handle<Integer> handle = live.keySet().iterator().next();
+                heap.touch(handle);
+                live.put(handle, now + TTL);
+            } else {
+                Integer expected = live.keySet().stream().map(MinMaxHeap.Handle::getElement).min(Integer::compare).get();
+                assertEquals(expected, heap.deleteMin());
+                live.keySet().removeIf(handle -> !handle.isValid());
+            }
+            assertEquals(live.size(), heap.getSize());
+            if (!live.isEmpty()) {
+                Integer max = live.keySet().stream().map(MinMaxHeap.Handle::getElement).max(Integer::compare).get();
+                assertEquals(max, heap.findMax());
+            }
+        }
+    }
+}